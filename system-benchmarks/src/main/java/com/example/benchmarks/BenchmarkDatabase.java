@@ -0,0 +1,365 @@
+package com.example.benchmarks;
+
+import com.example.chat.ChatHistoryCache;
+import com.example.mapper.ChatMessageMapper;
+import com.example.mapper.ChatSessionMapper;
+import com.example.mapper.ChatUnreadCounterMapper;
+import com.example.mapper.MenuItemMapper;
+import com.example.mapper.OrderItemMapper;
+import com.example.mapper.OrderMapper;
+import com.example.mapper.RestaurantMapper;
+import com.example.mapper.RestaurateurMapper;
+import com.example.mapper.UserMapper;
+import com.example.service.serviceImpl.ChatServiceImpl;
+import com.example.service.serviceImpl.OrderServiceImpl;
+import com.example.service.serviceImpl.RestaurateurStatsServiceImpl;
+import com.example.stats.DailyStatsRollup;
+import com.example.stats.RestaurateurStatsCache;
+import com.example.users.UserCache;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基准测试用的数据库与服务装配。
+ * 以 MySQL 兼容模式的 H2 内存库代替 MySQL，按 bench.scale 放大或缩小种子数据量，
+ * 服务实例按生产构造参数手工组装，不启动 Spring 容器，测到的只有服务本身与 SQL 的开销。
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    public static final String[] ORDER_STATUSES = {"PENDING", "PROCESSING", "READY", "COMPLETED"};
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final int BATCH_SIZE = 1000;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SqlSessionTemplate sqlSession;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Volumes volumes;
+
+    private final List<Integer> restaurateurIds = new ArrayList<>();
+    private final List<Integer> restaurateurUserIds = new ArrayList<>();
+    private final List<Integer> guestIds = new ArrayList<>();
+    private final Map<Integer, Integer> latestOrderByGuest = new HashMap<>();
+
+    private BenchmarkDatabase(Volumes volumes) throws Exception {
+        this.volumes = volumes;
+        HikariConfig config = new HikariConfig();
+        // 每个实例独立建库，同一 JVM 内多个 @State 互不干扰
+        config.setJdbcUrl("jdbc:h2:mem:bench" + SEQUENCE.incrementAndGet()
+            + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(Math.max(Runtime.getRuntime().availableProcessors(), 4));
+        this.dataSource = new HikariDataSource(config);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql")).execute(dataSource);
+
+        // 与 MybatisConfig 保持一致：同一批 XML 映射，下划线转驼峰
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath*:xml/*.xml"));
+        factoryBean.setTypeAliasesPackage("com.example.entity");
+        org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        factoryBean.setConfiguration(configuration);
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        this.sqlSession = new SqlSessionTemplate(sqlSessionFactory);
+    }
+
+    public static BenchmarkDatabase seeded() throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase(Volumes.fromSystemProperties());
+        database.seed();
+        return database;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    public Volumes volumes() {
+        return volumes;
+    }
+
+    public List<Integer> restaurateurIds() {
+        return restaurateurIds;
+    }
+
+    public List<Integer> guestIds() {
+        return guestIds;
+    }
+
+    public Integer restaurateurUserId(int index) {
+        return restaurateurUserIds.get(index);
+    }
+
+    public Integer latestOrderOf(Integer guestId) {
+        return latestOrderByGuest.get(guestId);
+    }
+
+    public <T> T mapper(Class<T> type) {
+        return sqlSession.getMapper(type);
+    }
+
+    public UserCache userCache() {
+        return new UserCache(mapper(UserMapper.class), meterRegistry, 10_000, 600);
+    }
+
+    public ChatServiceImpl chatService(boolean historyCacheEnabled) {
+        return new ChatServiceImpl(
+            mapper(OrderMapper.class),
+            mapper(UserMapper.class),
+            userCache(),
+            mapper(RestaurateurMapper.class),
+            mapper(ChatSessionMapper.class),
+            mapper(ChatMessageMapper.class),
+            mapper(ChatUnreadCounterMapper.class),
+            new ChatHistoryCache(meterRegistry, historyCacheEnabled, 50, 32L * 1024 * 1024, "simple"));
+    }
+
+    public OrderServiceImpl orderService() {
+        return new OrderServiceImpl(
+            mapper(OrderMapper.class),
+            mapper(OrderItemMapper.class),
+            mapper(MenuItemMapper.class),
+            mapper(RestaurantMapper.class),
+            userCache(),
+            chatService(true),
+            new DailyStatsRollup(jdbcTemplate, transactionTemplate, false, 3),
+            new RestaurateurStatsCache(0),
+            event -> { },
+            transactionTemplate);
+    }
+
+    public RestaurateurStatsServiceImpl statsService() {
+        return new RestaurateurStatsServiceImpl(jdbcTemplate, new RestaurateurStatsCache(0));
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    private void seed() {
+        SplittableRandom random = new SplittableRandom(42);
+        seedUsers();
+        Map<Integer, List<Object[]>> menuByRestaurateur = seedMenu(random);
+        seedOrders(random, menuByRestaurateur);
+        seedChat(random);
+    }
+
+    private void seedUsers() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < volumes.restaurateurs(); i++) {
+            rows.add(userRow("merchant" + i, "RESTAURATEUR"));
+        }
+        for (int i = 0; i < volumes.guests(); i++) {
+            rows.add(userRow("guest" + i, "GUEST"));
+        }
+        batchInsert("INSERT INTO `user` (username, password, nickname, role, address, email, phone) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+
+        jdbcTemplate.query("SELECT id, role FROM `user` ORDER BY id", rs -> {
+            if ("RESTAURATEUR".equals(rs.getString("role"))) {
+                restaurateurUserIds.add(rs.getInt("id"));
+            } else {
+                guestIds.add(rs.getInt("id"));
+            }
+        });
+        List<Object[]> owners = new ArrayList<>();
+        for (Integer userId : restaurateurUserIds) {
+            owners.add(new Object[]{userId});
+        }
+        batchInsert("INSERT INTO restaurateur (user_id, income) VALUES (?, 0)", owners);
+        jdbcTemplate.query("SELECT id FROM restaurateur ORDER BY id", rs -> {
+            restaurateurIds.add(rs.getInt("id"));
+        });
+    }
+
+    private Object[] userRow(String username, String role) {
+        return new Object[]{username, "e10adc3949ba59abbe56e057f20f883e", username, role,
+            "benchmark road " + username.length(), username + "@example.com", "1380000" + username.hashCode() % 10000};
+    }
+
+    private Map<Integer, List<Object[]>> seedMenu(SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer restaurateurId : restaurateurIds) {
+            for (int i = 0; i < volumes.dishesPerRestaurateur(); i++) {
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(800, 8800), 2);
+                rows.add(new Object[]{restaurateurId, "dish-" + restaurateurId + "-" + i, "category" + (i % 6), price});
+            }
+        }
+        batchInsert("INSERT INTO menu_item (restaurateur_id, name, category, price) VALUES (?, ?, ?, ?)", rows);
+
+        Map<Integer, List<Object[]>> menu = new HashMap<>();
+        jdbcTemplate.query("SELECT id, restaurateur_id, name, price FROM menu_item", rs -> {
+            menu.computeIfAbsent(rs.getInt("restaurateur_id"), key -> new ArrayList<>())
+                .add(new Object[]{rs.getInt("id"), rs.getString("name"), rs.getBigDecimal("price")});
+        });
+        return menu;
+    }
+
+    private void seedOrders(SplittableRandom random, Map<Integer, List<Object[]>> menuByRestaurateur) {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Object[]> orders = new ArrayList<>(volumes.orders());
+        List<List<Object[]>> itemsByOrder = new ArrayList<>(volumes.orders());
+        Map<String, long[]> dailyCounts = new HashMap<>();
+        Map<String, BigDecimal> dailyIncome = new HashMap<>();
+
+        for (int i = 0; i < volumes.orders(); i++) {
+            int guestIndex = random.nextInt(guestIds.size());
+            Integer guestId = guestIds.get(guestIndex);
+            // 每个顾客固定在一家店下单，和 FREE:GUEST:{id} 的统一会话一一对应
+            Integer restaurateurId = restaurateurIds.get(guestIndex % restaurateurIds.size());
+            LocalDateTime createdAt = now.minusMinutes(random.nextLong(volumes.historyDays() * 24L * 60L));
+            String status = i % 10 < 7 ? "COMPLETED" : ORDER_STATUSES[random.nextInt(3)];
+
+            List<Object[]> menu = menuByRestaurateur.get(restaurateurId);
+            List<Object[]> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            int quantityTotal = 0;
+            int lines = 1 + random.nextInt(3);
+            for (int l = 0; l < lines; l++) {
+                Object[] dish = menu.get(random.nextInt(menu.size()));
+                int quantity = 1 + random.nextInt(3);
+                BigDecimal price = (BigDecimal) dish[2];
+                total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+                quantityTotal += quantity;
+                items.add(new Object[]{dish[0], dish[1], price, quantity, Timestamp.valueOf(createdAt)});
+            }
+            total = total.setScale(2, RoundingMode.HALF_UP);
+            orders.add(new Object[]{"BENCH" + i, guestId, restaurateurId, status, "benchmark address",
+                total, Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt.plusMinutes(20))});
+            itemsByOrder.add(items);
+
+            String dayKey = restaurateurId + "|" + createdAt.toLocalDate();
+            long[] counts = dailyCounts.computeIfAbsent(dayKey, key -> new long[2]);
+            counts[0]++;
+            counts[1] += quantityTotal;
+            if ("COMPLETED".equals(status)) {
+                dailyIncome.merge(dayKey, total, BigDecimal::add);
+            }
+        }
+        batchInsert("INSERT INTO order_info (order_no, user_id, restaurateur_id, status, delivery_address, total_amount, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", orders);
+
+        // 订单号与生成的主键一一对应，再回填明细
+        Map<String, Integer> idsByOrderNo = new HashMap<>();
+        jdbcTemplate.query("SELECT id, order_no, user_id, created_at FROM order_info ORDER BY created_at", rs -> {
+            idsByOrderNo.put(rs.getString("order_no"), rs.getInt("id"));
+            latestOrderByGuest.put(rs.getInt("user_id"), rs.getInt("id"));
+        });
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < itemsByOrder.size(); i++) {
+            Integer orderId = idsByOrderNo.get("BENCH" + i);
+            for (Object[] item : itemsByOrder.get(i)) {
+                items.add(new Object[]{orderId, item[0], item[1], item[2], item[3], item[4]});
+            }
+        }
+        batchInsert("INSERT INTO order_item (order_id, dish_id, dish_name, unit_price, quantity, created_at) VALUES (?, ?, ?, ?, ?, ?)", items);
+
+        // 日汇总直接按种子数据算好写入，口径同 DailyStatsRollup
+        List<Object[]> stats = new ArrayList<>(dailyCounts.size());
+        dailyCounts.forEach((key, counts) -> {
+            int separator = key.indexOf('|');
+            stats.add(new Object[]{Integer.valueOf(key.substring(0, separator)), LocalDate.parse(key.substring(separator + 1)),
+                dailyIncome.getOrDefault(key, BigDecimal.ZERO), counts[0], counts[1]});
+        });
+        batchInsert("INSERT INTO restaurateur_daily_stats (restaurateur_id, stat_date, income, order_count, dish_count) VALUES (?, ?, ?, ?, ?)", stats);
+    }
+
+    private void seedChat(SplittableRandom random) {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Object[]> sessions = new ArrayList<>();
+        for (int i = 0; i < guestIds.size(); i++) {
+            Integer guestId = guestIds.get(i);
+            Integer orderId = latestOrderByGuest.get(guestId);
+            if (orderId == null) {
+                continue;
+            }
+            Integer restaurateurId = restaurateurIds.get(i % restaurateurIds.size());
+            sessions.add(new Object[]{"FREE:GUEST:" + guestId, restaurateurId, guestId, "GUEST", orderId, "ORDER", orderId,
+                "订单 " + orderId, Timestamp.valueOf(now.minusDays(random.nextInt(30)))});
+        }
+        batchInsert("INSERT INTO chat_session (session_key, restaurateur_id, peer_user_id, peer_role, order_id, context_type, " +
+            "context_ref, title, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", sessions);
+
+        List<Object[]> messages = new ArrayList<>();
+        jdbcTemplate.query("SELECT s.id, s.order_id, s.peer_user_id, r.user_id AS merchant_user_id FROM chat_session s " +
+            "JOIN restaurateur r ON r.id = s.restaurateur_id", rs -> {
+            int sessionId = rs.getInt("id");
+            int guestId = rs.getInt("peer_user_id");
+            int merchantUserId = rs.getInt("merchant_user_id");
+            LocalDateTime at = now.minusDays(1);
+            for (int m = 0; m < volumes.messagesPerSession(); m++) {
+                boolean fromGuest = m % 2 == 0;
+                at = at.plusMinutes(1 + random.nextInt(5));
+                messages.add(new Object[]{sessionId, rs.getInt("order_id"), "ORDER", rs.getInt("order_id"),
+                    fromGuest ? guestId : merchantUserId, fromGuest ? "GUEST" : "RESTAURATEUR",
+                    fromGuest ? merchantUserId : guestId, fromGuest ? "RESTAURATEUR" : "GUEST",
+                    "benchmark message " + m, 1, Timestamp.valueOf(at)});
+            }
+        });
+        batchInsert("INSERT INTO chat_message (session_id, order_id, context_type, context_ref, sender_id, sender_role, " +
+            "receiver_id, receiver_role, content, read_flag, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", messages);
+        jdbcTemplate.update("UPDATE chat_session s SET last_message_time = " +
+            "(SELECT MAX(m.created_at) FROM chat_message m WHERE m.session_id = s.id), last_message_preview = 'benchmark'");
+    }
+
+    private void batchInsert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+
+    /**
+     * 种子数据量，默认值对应一个中等规模的商圈；-Dbench.scale=0.1 可在本机快速试跑。
+     */
+    public record Volumes(int restaurateurs, int guests, int dishesPerRestaurateur, int orders,
+                          int historyDays, int messagesPerSession) {
+
+        static Volumes fromSystemProperties() {
+            double scale = Double.parseDouble(System.getProperty("bench.scale", "1"));
+            return new Volumes(
+                scaled(50, scale),
+                scaled(5_000, scale),
+                30,
+                scaled(100_000, scale),
+                365,
+                20);
+        }
+
+        private static int scaled(int base, double scale) {
+            return Math.max((int) Math.round(base * scale), 1);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.benchmarks;
+
+import com.example.common.DataRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 构造与控制器传入形态一致的 DataRequest。
+ */
+final class BenchmarkRequests {
+
+    private BenchmarkRequests() {
+    }
+
+    static DataRequest of(Map<String, Object> data) {
+        DataRequest request = new DataRequest();
+        request.setData(new HashMap<>(data));
+        return request;
+    }
+
+    static DataRequest paged(Map<String, Object> data, int page, int size) {
+        DataRequest request = of(data);
+        request.setPage(page);
+        request.setSize(size);
+        return request;
+    }
+}
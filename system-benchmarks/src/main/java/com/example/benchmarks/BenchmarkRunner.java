@@ -0,0 +1,39 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准入口：默认把结果写成 JSON（target/jmh-result.json），便于不同版本之间直接对比。
+ * 其余参数原样交给 JMH，例如只跑订单列表：java -jar benchmarks.jar OrderList -rf json -rff order.json
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getResultFormat().hasValue() || commandLine.getResult().hasValue()) {
+            new Runner(builder.build()).run();
+            return;
+        }
+        Path output = Path.of(System.getProperty("bench.result", "target/jmh-result.json"));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Options options = builder
+            .resultFormat(ResultFormatType.JSON)
+            .result(output.toString())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.benchmarks;
+
+import com.example.dto.ChatMessageDelivery;
+import com.example.service.serviceImpl.ChatServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步发送一条聊天消息（dispatchMessage → doSendMessage）：校验、会话查找、落库与未读计数。
+ * 顾客在自己最近一笔订单上给商家发消息，会话已存在，对应线上最常见的路径。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatSendBenchmark {
+
+    private BenchmarkDatabase database;
+    private ChatServiceImpl chatService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded();
+        chatService = database.chatService(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public ChatMessageDelivery guestToMerchant(Sender sender) {
+        int index = sender.random.nextInt(database.guestIds().size());
+        Integer guestId = database.guestIds().get(index);
+        Integer orderId = database.latestOrderOf(guestId);
+        if (orderId == null) {
+            // 按比例缩小种子时个别顾客可能没有订单，换第一个顾客
+            guestId = database.guestIds().get(0);
+            orderId = database.latestOrderOf(guestId);
+            index = 0;
+        }
+        Integer merchantUserId = database.restaurateurUserId(index % database.restaurateurIds().size());
+        return chatService.dispatchMessage(BenchmarkRequests.of(Map.of(
+            "username", "guest" + index,
+            "orderId", orderId,
+            "receiverId", merchantUserId,
+            "receiverRole", "RESTAURATEUR",
+            "content", "请问还要多久出餐？")));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.benchmarks;
+
+import com.example.security.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个 /api 请求和 STOMP CONNECT 都要做的 Token 校验，不涉及数据库。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String validToken;
+    private String tamperedToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil("benchmark-secret-benchmark-secret-0001", "play-system", 86400, 10_000, null, Clock.systemUTC());
+        jwtUtil.init();
+        validToken = jwtUtil.generateToken("guest1", "GUEST", 1L, null).getToken();
+        char last = validToken.charAt(validToken.length() - 1);
+        tamperedToken = validToken.substring(0, validToken.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    @Benchmark
+    public Optional<JwtUtil.TokenDetails> parseValid() {
+        return jwtUtil.parseToken(validToken);
+    }
+
+    @Benchmark
+    public Optional<JwtUtil.TokenDetails> parseTampered() {
+        return jwtUtil.parseToken(tamperedToken);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.benchmarks;
+
+import com.example.common.Result;
+import com.example.dto.OrderListItemDto;
+import com.example.dto.PageResult;
+import com.example.service.serviceImpl.OrderServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商家订单列表分页：页码分页的首页与深页，以及游标分页的首页与续页。
+ * status 为空串时走全部状态（按状态优先级排序）的查询。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderListBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 50;
+
+    @Param({"", "COMPLETED"})
+    public String status;
+
+    private BenchmarkDatabase database;
+    private OrderServiceImpl orderService;
+    private Integer restaurateurId;
+    private String secondPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded();
+        orderService = database.orderService();
+        restaurateurId = database.restaurateurIds().get(0);
+        secondPageCursor = cursorPage("").getData().getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Result<PageResult<OrderListItemDto>> offsetFirstPage() {
+        return orderService.getOrderList(BenchmarkRequests.paged(filters(), 1, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Result<PageResult<OrderListItemDto>> offsetDeepPage() {
+        return orderService.getOrderList(BenchmarkRequests.paged(filters(), DEEP_PAGE, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Result<PageResult<OrderListItemDto>> cursorFirstPage() {
+        return cursorPage("");
+    }
+
+    @Benchmark
+    public Result<PageResult<OrderListItemDto>> cursorNextPage() {
+        return cursorPage(secondPageCursor == null ? "" : secondPageCursor);
+    }
+
+    private Result<PageResult<OrderListItemDto>> cursorPage(String cursor) {
+        Map<String, Object> data = filters();
+        data.put("cursor", cursor);
+        return orderService.getOrderList(BenchmarkRequests.paged(data, 1, PAGE_SIZE));
+    }
+
+    private Map<String, Object> filters() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("restaurateurId", restaurateurId);
+        if (!status.isEmpty()) {
+            data.put("status", status);
+        }
+        return data;
+    }
+}
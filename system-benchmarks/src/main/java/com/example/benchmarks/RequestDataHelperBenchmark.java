@@ -0,0 +1,56 @@
+package com.example.benchmarks;
+
+import com.example.common.DataRequest;
+import com.example.security.RequestDataHelper;
+import com.example.security.SecurityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器入口的请求数据补全：把 DataRequest 上的登录用户写入请求体。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestDataHelperBenchmark {
+
+    private SecurityContext.AuthenticatedUser principal;
+    private Map<String, Object> body;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        principal = new SecurityContext.AuthenticatedUser(
+            "merchant0", "RESTAURATEUR", 1L, Instant.now(), Instant.now().plusSeconds(3600), "token");
+        // 与 Jackson 反序列化出的可变 Map 一致
+        body = new HashMap<>(Map.of(
+            "restaurateurId", 1,
+            "status", "PENDING",
+            "keyword", "宫保",
+            "cursor", ""));
+    }
+
+    @Benchmark
+    public Map<String, Object> resolve() {
+        DataRequest request = new DataRequest();
+        request.setData(body);
+        request.setPrincipal(principal);
+        return RequestDataHelper.resolve(request);
+    }
+}
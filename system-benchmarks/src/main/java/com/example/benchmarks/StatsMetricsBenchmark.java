@@ -0,0 +1,63 @@
+package com.example.benchmarks;
+
+import com.example.common.Result;
+import com.example.service.serviceImpl.RestaurateurStatsServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商家经营曲线：近 7 天按日、近 90 天按周、近一年按月三种看板常用区间。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsMetricsBenchmark {
+
+    @Param({"day:7", "week:90", "month:365"})
+    public String range;
+
+    private BenchmarkDatabase database;
+    private RestaurateurStatsServiceImpl statsService;
+    private Map<String, Object> query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.seeded();
+        statsService = database.statsService();
+        String[] parts = range.split(":");
+        LocalDate today = LocalDate.now();
+        query = Map.of(
+            "restaurateurId", database.restaurateurIds().get(0),
+            "granularity", parts[0],
+            "from", today.minusDays(Integer.parseInt(parts[1]) - 1L).toString(),
+            "to", today.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Result getMetrics() {
+        return statsService.getMetrics(BenchmarkRequests.of(query));
+    }
+}
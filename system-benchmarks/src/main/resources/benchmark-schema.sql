@@ -0,0 +1,125 @@
+-- H2 (MODE=MySQL) 版本的表结构，只包含基准测试涉及的表，列与 DataInitializer 保持一致
+CREATE TABLE `user` (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  username VARCHAR(64) NOT NULL UNIQUE,
+  password VARCHAR(128) NOT NULL,
+  nickname VARCHAR(64),
+  role VARCHAR(32) NOT NULL,
+  address VARCHAR(255),
+  email VARCHAR(128),
+  phone VARCHAR(32),
+  avatar_url VARCHAR(255),
+  tokens_valid_after DATETIME NULL
+);
+
+CREATE TABLE restaurateur (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  user_id INT NOT NULL,
+  income DECIMAL(12,2) DEFAULT 0
+);
+CREATE INDEX idx_restaurateur_user ON restaurateur (user_id);
+
+CREATE TABLE menu_item (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  restaurateur_id INT NOT NULL,
+  name VARCHAR(128) NOT NULL,
+  category VARCHAR(64),
+  price DECIMAL(10,2) NOT NULL,
+  image_url VARCHAR(255),
+  description TEXT,
+  status VARCHAR(16) NOT NULL DEFAULT 'ON_SHELF',
+  is_deleted TINYINT NOT NULL DEFAULT 0,
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_menu_restaurateur ON menu_item (restaurateur_id, is_deleted);
+
+CREATE TABLE order_info (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  order_no VARCHAR(64) NOT NULL UNIQUE,
+  user_id INT,
+  deliveryman_id INT,
+  restaurateur_id INT,
+  restaurant_id INT,
+  status VARCHAR(32) NOT NULL,
+  remark VARCHAR(255),
+  delivery_address VARCHAR(255),
+  total_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+  idempotency_key VARCHAR(64),
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at DATETIME,
+  status_rank TINYINT GENERATED ALWAYS AS (
+    CASE status WHEN 'PENDING' THEN 1 WHEN 'PROCESSING' THEN 2 WHEN 'IN_PROGRESS' THEN 2 WHEN 'READY' THEN 3 WHEN 'COMPLETED' THEN 4 ELSE 5 END),
+  activity_at DATETIME GENERATED ALWAYS AS (COALESCE(updated_at, created_at))
+);
+CREATE INDEX idx_order_seek ON order_info (restaurateur_id, status_rank, activity_at DESC, id DESC);
+CREATE INDEX idx_order_status_seek ON order_info (restaurateur_id, status, activity_at DESC, id DESC);
+CREATE UNIQUE INDEX uk_order_idempotency ON order_info (user_id, idempotency_key);
+CREATE INDEX idx_order_created ON order_info (created_at);
+
+CREATE TABLE order_item (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  order_id INT NOT NULL,
+  dish_id INT,
+  dish_name VARCHAR(128) NOT NULL,
+  dish_image VARCHAR(255),
+  unit_price DECIMAL(10,2) NOT NULL,
+  quantity INT NOT NULL DEFAULT 1,
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_order_item_order ON order_item (order_id);
+
+CREATE TABLE chat_session (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  session_key VARCHAR(128) NOT NULL UNIQUE,
+  restaurateur_id INT NOT NULL,
+  peer_user_id INT NOT NULL,
+  peer_role VARCHAR(32) NOT NULL,
+  order_id INT,
+  context_type VARCHAR(32),
+  context_ref INT,
+  title VARCHAR(255),
+  last_message_preview VARCHAR(255),
+  last_message_time DATETIME,
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  activity_at DATETIME GENERATED ALWAYS AS (COALESCE(last_message_time, created_at))
+);
+CREATE INDEX idx_chat_session_restaurateur_seek ON chat_session (restaurateur_id, activity_at DESC, id DESC);
+CREATE INDEX idx_chat_session_peer_seek ON chat_session (peer_user_id, peer_role, activity_at DESC, id DESC);
+
+CREATE TABLE chat_message (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  session_id INT NOT NULL,
+  order_id INT,
+  context_type VARCHAR(32),
+  context_ref INT,
+  sender_id INT NOT NULL,
+  sender_role VARCHAR(32) NOT NULL,
+  receiver_id INT NOT NULL,
+  receiver_role VARCHAR(32) NOT NULL,
+  content TEXT NOT NULL,
+  read_flag TINYINT NOT NULL DEFAULT 0,
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_msg_session ON chat_message (session_id, id);
+CREATE INDEX idx_msg_receiver ON chat_message (receiver_role, receiver_id, read_flag);
+
+CREATE TABLE chat_unread_counter (
+  session_id INT NOT NULL,
+  receiver_role VARCHAR(32) NOT NULL,
+  receiver_id INT NOT NULL,
+  unread_count INT NOT NULL DEFAULT 0,
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (session_id, receiver_role, receiver_id)
+);
+
+CREATE TABLE restaurateur_daily_stats (
+  restaurateur_id INT NOT NULL,
+  stat_date DATE NOT NULL,
+  income DECIMAL(12,2) NOT NULL DEFAULT 0,
+  order_count INT NOT NULL DEFAULT 0,
+  dish_count INT NOT NULL DEFAULT 0,
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (restaurateur_id, stat_date)
+);
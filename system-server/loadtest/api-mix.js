@@ -0,0 +1,52 @@
+// 商家看板的典型接口组合：订单列表、经营统计、会话列表。
+// 用法：k6 run -e BASE_URL=http://localhost:8080 -e VUS=200 api-mix.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERNAME = __ENV.USERNAME || 'restaurateur';
+const PASSWORD = __ENV.PASSWORD || 'restaurateur123';
+const RESTAURATEUR_ID = Number(__ENV.RESTAURATEUR_ID || 1);
+
+export const options = {
+  scenarios: {
+    dashboard: {
+      executor: 'constant-vus',
+      vus: Number(__ENV.VUS || 200),
+      duration: __ENV.DURATION || '2m',
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function post(path, data, token, extra) {
+  const headers = { 'Content-Type': 'application/json' };
+  if (token) {
+    headers.Authorization = `Bearer ${token}`;
+  }
+  return http.post(`${BASE_URL}${path}`, JSON.stringify(Object.assign({ data }, extra || {})), {
+    headers,
+    tags: { endpoint: path },
+  });
+}
+
+export function setup() {
+  const res = post('/api/user/login', { username: USERNAME, password: PASSWORD });
+  const token = res.json('data.token');
+  if (!token) {
+    throw new Error(`login failed: ${res.status} ${res.body}`);
+  }
+  return { token };
+}
+
+export default function (ctx) {
+  const responses = [
+    post('/api/order/list', { restaurateurId: RESTAURATEUR_ID, cursor: '' }, ctx.token, { size: 20 }),
+    post('/api/restaurateur/metrics', { restaurateurId: RESTAURATEUR_ID, granularity: 'day' }, ctx.token),
+    post('/api/restaurateur/stats', { restaurateurId: RESTAURATEUR_ID }, ctx.token),
+    post('/api/chat/sessions', {}, ctx.token, { size: 50 }),
+  ];
+  for (const res of responses) {
+    check(res, { 'status 200': (r) => r.status === 200 });
+  }
+}
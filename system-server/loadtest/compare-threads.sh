@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# 平台线程与虚拟线程两种模式各跑一轮相同的 k6 负载，结果写到 loadtest/results/。
+# 需要 Java 21+、k6、已初始化的 MySQL；先在 system-server 下执行 ./mvnw -DskipTests package。
+# 虚拟线程一轮带 -Djdk.tracePinnedThreads=short，结束后统计日志里的线程钉住（pinning）记录，
+# 用来确认同步块与驱动内部的锁没有把虚拟线程钉在载体线程上。
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/*-exec.jar | head -n 1)
+RESULTS=loadtest/results
+MANAGEMENT_PORT=${MANAGEMENT_PORT:-9080}
+MANAGEMENT_URL=http://localhost:$MANAGEMENT_PORT/actuator
+mkdir -p "$RESULTS"
+
+if [ "$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')" -lt 21 ]; then
+  echo "虚拟线程需要 Java 21+" >&2
+  exit 1
+fi
+
+run() {
+  local mode=$1 profiles=$2
+  local log="$RESULTS/server-$mode.log"
+  MANAGEMENT_PORT=$MANAGEMENT_PORT java -Djdk.tracePinnedThreads=short -Dspring.profiles.active="$profiles" -jar "$JAR" >"$log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" EXIT
+  until curl -sf "$MANAGEMENT_URL/health" >/dev/null; do
+    sleep 1
+  done
+  k6 run --summary-export "$RESULTS/summary-$mode.json" loadtest/api-mix.js | tee "$RESULTS/k6-$mode.txt"
+  curl -s "$MANAGEMENT_URL/metrics/hikaricp.connections.pending" >"$RESULTS/hikari-pending-$mode.json" || true
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+  echo "$mode pinned-thread events: $(grep -c 'onPinned\|<== monitors' "$log" || true)"
+}
+
+run platform ""
+run virtual virtual
+
+for mode in platform virtual; do
+  printf '%-9s p95=%sms p99=%sms rps=%s\n' "$mode" \
+    "$(jq '.metrics.http_req_duration["p(95)"]' "$RESULTS/summary-$mode.json")" \
+    "$(jq '.metrics.http_req_duration["p(99)"]' "$RESULTS/summary-$mode.json")" \
+    "$(jq '.metrics.http_reqs.rate' "$RESULTS/summary-$mode.json")"
+done
@@ -0,0 +1,72 @@
+#!/usr/bin/env python3
+"""本地模拟 DeepSeek chat/completions，用于联调 /api/ai/chat 与 /api/ai/chat/stream。
+
+用法：python3 mock-completions.py [端口，默认 18080]
+然后以 DEEPSEEK_API_URL=http://localhost:18080 启动服务。
+stream=true 时按 OpenAI 兼容格式逐段返回 data: 行（每段间隔 MOCK_CHUNK_DELAY_MS，默认 50ms），以 data: [DONE] 结束；
+否则一次性返回完整 JSON。
+"""
+import json
+import os
+import sys
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+REPLY = "这是模拟的 AI 回复，用于验证流式转发与客户端断开时的取消。"
+DELAY = int(os.environ.get("MOCK_CHUNK_DELAY_MS", "50")) / 1000.0
+
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+
+    def do_POST(self):
+        if not self.path.endswith("/chat/completions"):
+            self.send_error(404)
+            return
+        length = int(self.headers.get("Content-Length", "0"))
+        request = json.loads(self.rfile.read(length) or b"{}")
+        model = request.get("model", "deepseek-chat")
+        if request.get("stream"):
+            self.stream(model)
+        else:
+            body = json.dumps({
+                "model": model,
+                "choices": [{"index": 0, "message": {"role": "assistant", "content": REPLY}}],
+                "usage": {"prompt_tokens": 10, "completion_tokens": len(REPLY), "total_tokens": 10 + len(REPLY)},
+            }, ensure_ascii=False).encode("utf-8")
+            self.send_response(200)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(body)))
+            self.end_headers()
+            self.wfile.write(body)
+
+    def stream(self, model):
+        self.send_response(200)
+        self.send_header("Content-Type", "text/event-stream")
+        self.send_header("Transfer-Encoding", "chunked")
+        self.end_headers()
+        try:
+            for i, ch in enumerate(REPLY):
+                delta = {"content": ch}
+                if model == "deepseek-reasoner" and i < 5:
+                    delta = {"reasoning_content": "思考" + str(i)}
+                self.chunk({"model": model, "choices": [{"index": 0, "delta": delta}]})
+                time.sleep(DELAY)
+            self.chunk({"model": model, "choices": [], "usage": {"total_tokens": 10 + len(REPLY)}})
+            self.write_chunk(b"data: [DONE]\n\n")
+            self.write_chunk(b"")
+        except (BrokenPipeError, ConnectionResetError):
+            # 服务端取消上游请求时会走到这里
+            sys.stderr.write("client disconnected\n")
+
+    def chunk(self, payload):
+        self.write_chunk(("data: " + json.dumps(payload, ensure_ascii=False) + "\n\n").encode("utf-8"))
+
+    def write_chunk(self, data):
+        self.wfile.write(b"%x\r\n%s\r\n" % (len(data), data))
+        self.wfile.flush()
+
+
+if __name__ == "__main__":
+    port = int(sys.argv[1]) if len(sys.argv) > 1 else 18080
+    ThreadingHTTPServer(("127.0.0.1", port), Handler).serve_forever()
@@ -0,0 +1,240 @@
+package com.example.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 上游 AI 调用的闸门：按用户令牌桶限流，全局最多 max-concurrent 个调用在途，
+ * 其余进入长度为 max-queued 的等待队列；队列已满立即拒绝，排队超过 queue-timeout-ms 也拒绝。
+ * 调用以异步方式排队，等待期间不占用请求线程；名额在上游 future 结束（含取消）时归还并交给下一个等待者。
+ * 拒绝统一以 429 的 ResponseStatusException 结束返回的 future。
+ */
+@Component
+public class AiCallLimiter {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final double tokensPerNano;
+    private final double burst;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Pending<?>> waiting = new ArrayDeque<>();
+    private int active;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Counter rateLimited;
+    private final Counter queueFull;
+    private final Counter queueTimeout;
+
+    public AiCallLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${deepseek.limits.max-concurrent:16}") int maxConcurrent,
+            @Value("${deepseek.limits.max-queued:32}") int maxQueued,
+            @Value("${deepseek.limits.queue-timeout-ms:10000}") long queueTimeoutMs,
+            @Value("${deepseek.limits.per-user-per-minute:20}") int perUserPerMinute,
+            @Value("${deepseek.limits.per-user-burst:5}") int perUserBurst) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent = Math.max(maxConcurrent, 1);
+        this.maxQueued = Math.max(maxQueued, 0);
+        this.queueTimeoutMs = Math.max(queueTimeoutMs, 0);
+        this.tokensPerNano = Math.max(perUserPerMinute, 0) / (double) TimeUnit.MINUTES.toNanos(1);
+        this.burst = Math.max(perUserBurst, 1);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .maximumSize(100_000)
+                .build();
+
+        this.queueWait = Timer.builder("ai.upstream.queue.wait")
+                .description("Time AI calls spend waiting for a bulkhead slot")
+                .register(meterRegistry);
+        this.rateLimited = rejected("rate_limited");
+        this.queueFull = rejected("queue_full");
+        this.queueTimeout = rejected("queue_timeout");
+        meterRegistry.gauge("ai.upstream.active", this, limiter -> limiter.active);
+        meterRegistry.gauge("ai.upstream.queued", this, limiter -> limiter.waiting.size());
+    }
+
+    /**
+     * 以 username 的配额提交一次上游调用；call 在拿到名额后才执行。
+     * 取消返回的 future 会把尚在排队的调用移出队列，或取消已发出的上游请求。
+     */
+    public <T> CompletableFuture<T> submit(String username, String mode, Supplier<CompletableFuture<T>> call) {
+        if (tokensPerNano > 0 && !bucketOf(username).tryAcquire()) {
+            rateLimited.increment();
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "AI请求过于频繁，请稍后再试"));
+        }
+
+        Pending<T> pending = new Pending<>(mode, call);
+        boolean queued;
+        lock.lock();
+        try {
+            if (active < maxConcurrent) {
+                active++;
+                queued = false;
+            } else if (waiting.size() < maxQueued) {
+                waiting.addLast(pending);
+                queued = true;
+            } else {
+                queueFull.increment();
+                return CompletableFuture.failedFuture(
+                        new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "AI服务繁忙，请稍后再试"));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        pending.result.whenComplete((value, ex) -> {
+            if (pending.result.isCancelled()) {
+                cancel(pending);
+            }
+        });
+        if (queued) {
+            if (queueTimeoutMs > 0) {
+                CompletableFuture.delayedExecutor(queueTimeoutMs, TimeUnit.MILLISECONDS).execute(() -> expire(pending));
+            }
+        } else {
+            start(pending);
+        }
+        return pending.result;
+    }
+
+    private <T> void start(Pending<T> pending) {
+        queueWait.record(System.nanoTime() - pending.queuedAt, TimeUnit.NANOSECONDS);
+        if (pending.result.isDone()) {
+            release();
+            return;
+        }
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> upstream = call(pending);
+        pending.upstream = upstream;
+        upstream.whenComplete((value, ex) -> {
+            String outcome = upstream.isCancelled() ? "cancelled" : ex != null ? "error" : "success";
+            meterRegistry.timer("ai.upstream.latency", "mode", pending.mode, "outcome", outcome)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            release();
+            if (ex != null) {
+                pending.result.completeExceptionally(ex);
+            } else {
+                pending.result.complete(value);
+            }
+        });
+        // 调用方在上游发出前已取消
+        if (pending.result.isCancelled()) {
+            upstream.cancel(true);
+        }
+    }
+
+    private static <T> CompletableFuture<T> call(Pending<T> pending) {
+        try {
+            return pending.call.get();
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * 归还一个名额：有等待者时直接转交，否则在途数减一。
+     */
+    private void release() {
+        Pending<?> next;
+        lock.lock();
+        try {
+            next = waiting.pollFirst();
+            if (next == null) {
+                active--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private void expire(Pending<?> pending) {
+        if (removeWaiting(pending)) {
+            queueTimeout.increment();
+            pending.result.completeExceptionally(
+                    new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "AI服务繁忙，请稍后再试"));
+        }
+    }
+
+    private void cancel(Pending<?> pending) {
+        if (removeWaiting(pending)) {
+            return;
+        }
+        CompletableFuture<?> upstream = pending.upstream;
+        if (upstream != null) {
+            upstream.cancel(true);
+        }
+    }
+
+    private boolean removeWaiting(Pending<?> pending) {
+        lock.lock();
+        try {
+            return waiting.remove(pending);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TokenBucket bucketOf(String username) {
+        return buckets.get(username == null ? "" : username, key -> new TokenBucket(burst));
+    }
+
+    private Counter rejected(String reason) {
+        return Counter.builder("ai.upstream.rejected").tag("reason", reason).register(meterRegistry);
+    }
+
+    private static final class Pending<T> {
+        private final String mode;
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+        private volatile CompletableFuture<T> upstream;
+
+        private Pending(String mode, Supplier<CompletableFuture<T>> call) {
+            this.mode = mode;
+            this.call = call;
+        }
+    }
+
+    private final class TokenBucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private TokenBucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 非流式 AI 回答的缓存（默认关闭），键为 (模型, 规范化后的最终 messages) 的摘要；
+ * 最终 messages 含注入的项目上下文，上下文内容或挑选结果变化时不会命中旧回答。
+ * 同一键的并发请求共用一次上游调用；上游失败或非 200 的结果不缓存。
+ * 命中时按原调用耗时记入 ai.cache.saved，用于估算省下的上游时间。
+ */
+@Component
+public class AiResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final AsyncCache<String, Entry> cache;
+
+    private final Counter hits;
+    private final Counter coalesced;
+    private final Counter misses;
+    private final Timer saved;
+
+    public AiResponseCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${deepseek.cache.enabled:false}") boolean enabled,
+            @Value("${deepseek.cache.maximum-size:500}") long maximumSize,
+            @Value("${deepseek.cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+        this.hits = Counter.builder("ai.cache").tag("result", "hit").register(meterRegistry);
+        this.coalesced = Counter.builder("ai.cache").tag("result", "coalesced").register(meterRegistry);
+        this.misses = Counter.builder("ai.cache").tag("result", "miss").register(meterRegistry);
+        this.saved = Timer.builder("ai.cache.saved")
+                .description("Upstream latency avoided by serving AI answers from the cache")
+                .register(meterRegistry);
+        meterRegistry.gauge("ai.cache.size", this, responseCache -> responseCache.cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * 按组装好的上游请求体取回答；未开启缓存时直接调用 loader。
+     */
+    public CompletableFuture<Map<String, Object>> get(Map<String, Object> deepseekRequest,
+                                                      Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = key(deepseekRequest.get("model"), deepseekRequest.get("messages"));
+        AtomicBoolean loaded = new AtomicBoolean();
+        CompletableFuture<Entry> entry = cache.get(key, (k, executor) -> {
+            loaded.set(true);
+            long start = System.nanoTime();
+            return loader.get().thenApply(body -> body == null ? null : new Entry(body, System.nanoTime() - start));
+        });
+        if (loaded.get()) {
+            misses.increment();
+        } else {
+            // 已完成的是命中，仍在进行中的是搭上了别人的上游调用
+            (entry.isDone() ? hits : coalesced).increment();
+            entry.thenAccept(value -> {
+                if (value != null) {
+                    saved.record(value.loadNanos, TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+        return entry.thenApply(value -> value == null ? null : value.body);
+    }
+
+    /**
+     * 只取 role 与去掉首尾空白的 content，其余字段（如前端附带的 id、时间）不影响命中。
+     */
+    String key(Object model, Object messages) {
+        List<Map<String, Object>> normalized = new ArrayList<>();
+        if (messages instanceof List) {
+            for (Object message : (List<?>) messages) {
+                if (message instanceof Map) {
+                    Map<?, ?> source = (Map<?, ?>) message;
+                    Map<String, Object> copy = new LinkedHashMap<>();
+                    copy.put("role", source.get("role"));
+                    Object content = source.get("content");
+                    copy.put("content", content instanceof String ? ((String) content).strip() : content);
+                    normalized.add(copy);
+                }
+            }
+        }
+        Map<String, Object> keyed = new LinkedHashMap<>();
+        keyed.put("model", model);
+        keyed.put("messages", normalized);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(keyed).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("failed to build AI cache key", ex);
+        }
+    }
+
+    private static final class Entry {
+        private final Map<String, Object> body;
+        private final long loadNanos;
+
+        private Entry(Map<String, Object> body, long loadNanos) {
+            this.body = body;
+            this.loadNanos = loadNanos;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * DeepSeek chat/completions 的调用封装：组装请求体（模型覆盖、按问题挑选的项目上下文注入），
+ * 非流式一次取回并解析，流式逐行交给调用方的订阅者。
+ * 两种调用共用一个 java.net.http 客户端（连接保活复用），都是异步的，并经 AiCallLimiter 限流与排队。
+ */
+@Component
+@Slf4j
+public class DeepSeekClient {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final AiCallLimiter limiter;
+    private final ProjectContextIndex contextIndex;
+    private final String apiKey;
+    private final String apiUrl;
+    private final String model;
+    private final Duration readTimeout;
+    private final HttpClient httpClient;
+
+    public DeepSeekClient(
+            ObjectMapper objectMapper,
+            AiCallLimiter limiter,
+            ProjectContextIndex contextIndex,
+            @Value("${deepseek.api.key}") String apiKey,
+            @Value("${deepseek.api.url}") String apiUrl,
+            @Value("${deepseek.model}") String model,
+            @Value("${deepseek.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${deepseek.http.read-timeout-ms:120000}") long readTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.limiter = limiter;
+        this.contextIndex = contextIndex;
+        this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.model = model;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    /**
+     * 由前端的 data 组装上游请求体；payload 需包含 messages。
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> buildRequest(Map<String, Object> payload, boolean stream) {
+        Object modelOverride = payload.get("model");
+        String resolvedModel = model;
+        if (modelOverride instanceof String && !((String) modelOverride).isBlank()) {
+            resolvedModel = (String) modelOverride;
+        }
+
+        Map<String, Object> deepseekRequest = new HashMap<>();
+        deepseekRequest.put("model", resolvedModel);
+
+        boolean includeCtx = includeProjectContext(payload);
+
+        Object originalMessagesObj = payload.get("messages");
+        if (includeCtx) {
+            List<Map<String, Object>> augmentedMessages = new ArrayList<>();
+            String projectContext = contextIndex.select(lastUserContent(originalMessagesObj));
+            if (projectContext != null && !projectContext.isBlank()) {
+                Map<String, Object> contextMsg = new HashMap<>();
+                contextMsg.put("role", "user");
+                contextMsg.put(
+                        "content",
+                        "[项目上下文]\n" + projectContext +
+                                "\n---\n请在回答问题时优先结合以上背景；若与问题无关，可忽略该上下文。"
+                );
+                augmentedMessages.add(contextMsg);
+            }
+            if (originalMessagesObj instanceof List) {
+                augmentedMessages.addAll((List<Map<String, Object>>) originalMessagesObj);
+            }
+            deepseekRequest.put("messages", augmentedMessages);
+        } else {
+            // 不注入时直接透传
+            deepseekRequest.put("messages", originalMessagesObj);
+        }
+        deepseekRequest.put("stream", stream);
+        return deepseekRequest;
+    }
+
+    /**
+     * 是否注入项目上下文，由前端传入 includeProjectContext 决定（默认不注入）
+     */
+    private static boolean includeProjectContext(Map<String, Object> payload) {
+        Object includeOpt = payload.get("includeProjectContext");
+        if (includeOpt instanceof Boolean) {
+            return (Boolean) includeOpt;
+        }
+        if (includeOpt instanceof String) {
+            return Boolean.parseBoolean((String) includeOpt);
+        }
+        return false;
+    }
+
+    /**
+     * 非流式调用；上游返回非 200 时结果为 null。
+     */
+    public CompletableFuture<Map<String, Object>> complete(String username, Map<String, Object> deepseekRequest) {
+        return limiter.submit(username, "complete", () -> send(deepseekRequest, MediaType.APPLICATION_JSON_VALUE,
+                HttpResponse.BodyHandlers.ofByteArray()).thenApply(this::parse));
+    }
+
+    /**
+     * 发起流式请求，响应按行推给 handler 返回的订阅者；返回的 future 在响应体读完或被取消时结束。
+     */
+    public CompletableFuture<HttpResponse<Void>> stream(String username, Map<String, Object> deepseekRequest,
+                                                        HttpResponse.BodyHandler<Void> handler) {
+        return limiter.submit(username, "stream",
+                () -> send(deepseekRequest, MediaType.TEXT_EVENT_STREAM_VALUE, handler));
+    }
+
+    /**
+     * 读超时只约束拿到响应头之前的等待；流式响应体的总时长由调用方的 SSE 超时控制。
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(Map<String, Object> deepseekRequest, String accept,
+                                                       HttpResponse.BodyHandler<T> handler) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(deepseekRequest);
+        } catch (JsonProcessingException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint()))
+                .timeout(readTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, accept)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        log.info("Calling DeepSeek API: {}", request.uri());
+        return httpClient.sendAsync(request, handler);
+    }
+
+    private Map<String, Object> parse(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            log.error("DeepSeek API返回非200状态码: {}", response.statusCode());
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response.body(), MAP_TYPE);
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private String endpoint() {
+        return apiUrl + "/chat/completions";
+    }
+
+    /**
+     * 以最后一条用户消息作为挑选项目上下文的问题。
+     */
+    private static String lastUserContent(Object messages) {
+        if (!(messages instanceof List)) {
+            return null;
+        }
+        List<?> list = (List<?>) messages;
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) instanceof Map) {
+                Map<?, ?> message = (Map<?, ?>) list.get(i);
+                if ("user".equals(message.get("role")) && message.get("content") instanceof String) {
+                    return (String) message.get("content");
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 为一次流式聊天建立 SseEmitter 并与上游请求绑定生命周期：
+ * 浏览器断开、超时或出错时取消上游，上游结束或失败时关闭 SSE。
+ */
+@Component
+@Slf4j
+public class DeepSeekStreamRelay {
+
+    private final DeepSeekClient deepSeekClient;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+
+    public DeepSeekStreamRelay(
+            DeepSeekClient deepSeekClient,
+            ObjectMapper objectMapper,
+            @Value("${deepseek.stream.timeout-ms:300000}") long timeoutMs) {
+        this.deepSeekClient = deepSeekClient;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter open(String username, Map<String, Object> deepseekRequest) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        SseRelaySubscriber relay = new SseRelaySubscriber(emitter, objectMapper);
+        CompletableFuture<HttpResponse<Void>> upstream =
+                deepSeekClient.stream(username, deepseekRequest, relay::bodySubscriber);
+
+        Runnable cancel = () -> {
+            relay.cancel();
+            upstream.cancel(true);
+        };
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(() -> {
+            log.warn("DeepSeek 流式响应超时 {}ms，取消上游请求", timeoutMs);
+            cancel.run();
+        });
+        emitter.onError(ex -> cancel.run());
+        // 订阅者收到 [DONE] 或写浏览器失败时自行取消订阅，此时上游 future 不会结束，需在这里取消
+        relay.finished().thenRun(() -> upstream.cancel(true));
+
+        // 限流拒绝、连接失败等在拿到响应头之前的错误不会经过订阅者
+        upstream.whenComplete((response, ex) -> {
+            if (ex == null || upstream.isCancelled()) {
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof ResponseStatusException) {
+                relay.fail(((ResponseStatusException) cause).getReason());
+                return;
+            }
+            log.error("DeepSeek 流式调用失败", cause);
+            relay.fail("调用AI服务失败: " + cause.getMessage());
+        });
+        return emitter;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 项目上下文（默认 classpath:ai/context.md）的内存索引。
+ * 启动时读入一次，按 Markdown 标题切成段落并预先分词（英文单词 + 中文二元组）；
+ * 每次请求只按用户问题挑选相关段落，总长不超过 max-chars；没有相关段落时不注入上下文。
+ * reload-interval-ms 大于 0 时（开发环境）按该间隔检查文件修改时间并重建索引。
+ */
+@Component
+@Slf4j
+public class ProjectContextIndex {
+
+    private static final String TRUNCATED = "\n... (已截断)";
+
+    private final Resource resource;
+    private final int maxChars;
+    private final long reloadIntervalMs;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long checkedAt;
+
+    public ProjectContextIndex(
+            ResourceLoader resourceLoader,
+            @Value("${deepseek.context.location:classpath:ai/context.md}") String location,
+            @Value("${deepseek.context.max-chars:8000}") int maxChars,
+            @Value("${deepseek.context.reload-interval-ms:0}") long reloadIntervalMs) {
+        this.resource = resourceLoader.getResource(location);
+        this.maxChars = Math.max(maxChars, 1);
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.snapshot = load();
+    }
+
+    /**
+     * 按问题挑选上下文；文件不存在、为空或没有与问题相关的段落时返回 null。
+     */
+    public String select(String question) {
+        Snapshot current = current();
+        if (current.sections.isEmpty()) {
+            return null;
+        }
+        Set<String> terms = terms(question);
+        List<Scored> scored = new ArrayList<>();
+        for (int i = 0; i < current.sections.size(); i++) {
+            double score = current.score(current.sections.get(i), terms);
+            if (score > 0) {
+                scored.add(new Scored(i, score));
+            }
+        }
+        if (scored.isEmpty()) {
+            // 无关问题不值得为整篇文档付 token
+            return null;
+        }
+        scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed());
+
+        boolean[] picked = new boolean[current.sections.size()];
+        int length = 0;
+        for (Scored candidate : scored) {
+            int sectionLength = current.sections.get(candidate.index).text.length();
+            if (length + sectionLength > maxChars) {
+                continue;
+            }
+            picked[candidate.index] = true;
+            length += sectionLength;
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        for (int i = 0; i < picked.length; i++) {
+            if (picked[i]) {
+                if (sb.length() > 0) {
+                    sb.append("\n\n");
+                }
+                sb.append(current.sections.get(i).text);
+            }
+        }
+        // 最相关的段落本身就超长时只取其开头
+        return sb.length() > 0 ? sb.toString() : truncate(current.sections.get(scored.get(0).index).text);
+    }
+
+    private Snapshot current() {
+        if (reloadIntervalMs <= 0) {
+            return snapshot;
+        }
+        long now = System.currentTimeMillis();
+        if (now - checkedAt < reloadIntervalMs) {
+            return snapshot;
+        }
+        synchronized (this) {
+            if (now - checkedAt >= reloadIntervalMs) {
+                checkedAt = now;
+                if (lastModified() != snapshot.lastModified) {
+                    snapshot = load();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot load() {
+        try {
+            if (!resource.exists()) {
+                return Snapshot.EMPTY;
+            }
+            long lastModified = lastModified();
+            String text = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+            Snapshot loaded = new Snapshot(split(text), lastModified);
+            log.info("项目上下文已加载: {} sections={} chars={}", resource.getDescription(), loaded.sections.size(), text.length());
+            return loaded;
+        } catch (IOException ex) {
+            log.warn("读取项目上下文失败: {}", ex.getMessage());
+            return Snapshot.EMPTY;
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0L;
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private String truncate(String text) {
+        return text.length() > maxChars ? text.substring(0, maxChars) + TRUNCATED : text;
+    }
+
+    /**
+     * 以 Markdown 标题行切段，段落文本带上所属的上级标题，单独注入时仍能看出出处。
+     */
+    private static List<Section> split(String text) {
+        List<Section> sections = new ArrayList<>();
+        List<String> headings = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        boolean inFence = false;
+        for (String line : text.split("\\R")) {
+            if (line.stripLeading().startsWith("```")) {
+                inFence = !inFence;
+            }
+            // 代码块里的 # 注释不是标题
+            int level = inFence ? 0 : headingLevel(line);
+            if (level > 0) {
+                addSection(sections, headings, body);
+                while (headings.size() >= level) {
+                    headings.remove(headings.size() - 1);
+                }
+                while (headings.size() < level - 1) {
+                    headings.add("");
+                }
+                headings.add(line.substring(level).strip());
+                continue;
+            }
+            body.append(line).append('\n');
+        }
+        addSection(sections, headings, body);
+        return List.copyOf(sections);
+    }
+
+    private static void addSection(List<Section> sections, List<String> headings, StringBuilder body) {
+        String content = body.toString().strip();
+        body.setLength(0);
+        if (content.isEmpty()) {
+            return;
+        }
+        String path = String.join(" > ", headings.stream().filter(h -> !h.isEmpty()).toList());
+        String text = path.isEmpty() ? content : "## " + path + "\n" + content;
+        sections.add(new Section(text, terms(text)));
+    }
+
+    private static int headingLevel(String line) {
+        int level = 0;
+        while (level < line.length() && level < 6 && line.charAt(level) == '#') {
+            level++;
+        }
+        return level > 0 && level < line.length() && line.charAt(level) == ' ' ? level : 0;
+    }
+
+    /**
+     * 英文/数字按单词（至少 2 个字符，下划线也作分隔）切分，中文按相邻二元组切分，统一转小写。
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        char previousHan = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.UnicodeScript.of(ch) == Character.UnicodeScript.HAN) {
+                flushWord(terms, word);
+                if (previousHan != 0) {
+                    terms.add(new String(new char[] {previousHan, ch}));
+                }
+                previousHan = ch;
+                continue;
+            }
+            previousHan = 0;
+            if (Character.isLetterOrDigit(ch)) {
+                word.append(Character.toLowerCase(ch));
+            } else {
+                flushWord(terms, word);
+            }
+        }
+        flushWord(terms, word);
+        return terms;
+    }
+
+    private static void flushWord(Set<String> terms, StringBuilder word) {
+        if (word.length() >= 2) {
+            terms.add(word.toString());
+        }
+        word.setLength(0);
+    }
+
+    private static final class Section {
+        private final String text;
+        private final Set<String> terms;
+
+        private Section(String text, Set<String> terms) {
+            this.text = text;
+            this.terms = Set.copyOf(terms);
+        }
+    }
+
+    private static final class Scored {
+        private final int index;
+        private final double score;
+
+        private Scored(int index, double score) {
+            this.index = index;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 一次加载的不可变结果；词的权重按出现在多少段落中取 idf，常见词贡献小。
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(List.of(), -1L);
+
+        private final List<Section> sections;
+        private final long lastModified;
+        private final Map<String, Double> weights;
+
+        private Snapshot(List<Section> sections, long lastModified) {
+            this.sections = sections;
+            this.lastModified = lastModified;
+            Map<String, Integer> documentFrequency = new HashMap<>();
+            for (Section section : sections) {
+                for (String term : section.terms) {
+                    documentFrequency.merge(term, 1, Integer::sum);
+                }
+            }
+            Map<String, Double> weights = new HashMap<>();
+            documentFrequency.forEach((term, df) -> weights.put(term, Math.log(1.0 + (double) sections.size() / df)));
+            this.weights = Map.copyOf(weights);
+        }
+
+        double score(Section section, Set<String> questionTerms) {
+            double score = 0;
+            for (String term : questionTerms) {
+                if (section.terms.contains(term)) {
+                    score += weights.getOrDefault(term, 0.0);
+                }
+            }
+            return score;
+        }
+    }
+}
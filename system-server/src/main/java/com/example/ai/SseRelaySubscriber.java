@@ -0,0 +1,172 @@
+package com.example.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * 把上游 SSE 的 data 行转成浏览器端的 delta / done / error 事件。
+ * 每次只向上游要一行，写给浏览器成功后才要下一行：浏览器读得慢时 HttpClient 停止读套接字，
+ * 背压一直传到上游。浏览器断开（写失败、超时、完成回调）时取消订阅，上游连接随之关闭。
+ */
+@Slf4j
+class SseRelaySubscriber implements Flow.Subscriber<String> {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private final SseEmitter emitter;
+    private final ObjectMapper objectMapper;
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+    private JsonNode usage;
+
+    SseRelaySubscriber(SseEmitter emitter, ObjectMapper objectMapper) {
+        this.emitter = emitter;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 上游非 200 时不转发响应体，只给浏览器一个错误事件。
+     */
+    HttpResponse.BodySubscriber<Void> bodySubscriber(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() != 200) {
+            log.error("DeepSeek 流式接口返回非200状态码: {}", info.statusCode());
+            fail("AI服务响应异常");
+            return HttpResponse.BodySubscribers.discarding();
+        }
+        return HttpResponse.BodySubscribers.fromLineSubscriber(this, subscriber -> null, StandardCharsets.UTF_8, null);
+    }
+
+    /**
+     * 转发结束（[DONE]、上游结束或失败、浏览器断开）时完成。
+     * 主动取消订阅后 HttpClient 返回的 future 不会自行结束，调用方据此取消上游请求并归还名额。
+     */
+    CompletableFuture<Void> finished() {
+        return finished;
+    }
+
+    /**
+     * 浏览器侧已断开或超时。
+     */
+    void cancel() {
+        cancelled = true;
+        finished.complete(null);
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (finished.isDone()) {
+            return;
+        }
+        try {
+            relay(line.trim());
+        } catch (IOException ex) {
+            // 写浏览器失败说明连接已断，停止读上游
+            log.debug("SSE 客户端已断开: {}", ex.getMessage());
+            cancel();
+            return;
+        } catch (Exception ex) {
+            log.warn("解析 DeepSeek 流式数据失败: {}", ex.getMessage());
+        }
+        if (!finished.isDone()) {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!cancelled) {
+            log.error("DeepSeek 流式调用失败", throwable);
+            fail("调用AI服务失败: " + throwable.getMessage());
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        // 上游未发 [DONE] 就结束时同样收尾
+        if (finished.complete(null)) {
+            sendDoneQuietly();
+        }
+    }
+
+    void fail(String message) {
+        if (!finished.complete(null)) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("message", message)));
+            emitter.complete();
+        } catch (Exception ex) {
+            emitter.completeWithError(ex);
+        }
+    }
+
+    private void relay(String line) throws IOException {
+        if (!line.startsWith(DATA_PREFIX)) {
+            // 空行、注释（: keep-alive）与 event/id 行不需要转发
+            return;
+        }
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE.equals(data)) {
+            if (finished.complete(null)) {
+                subscription.cancel();
+                sendDoneQuietly();
+            }
+            return;
+        }
+        JsonNode chunk = objectMapper.readTree(data);
+        if (chunk.hasNonNull("usage")) {
+            usage = chunk.get("usage");
+        }
+        JsonNode delta = chunk.path("choices").path(0).path("delta");
+        Map<String, Object> event = new HashMap<>();
+        if (delta.hasNonNull("content")) {
+            event.put("content", delta.get("content").asText());
+        }
+        // DeepSeek Reasoner 模型的思考过程
+        if (delta.hasNonNull("reasoning_content")) {
+            event.put("reasoning_content", delta.get("reasoning_content").asText());
+        }
+        if (!event.isEmpty()) {
+            emitter.send(SseEmitter.event().name("delta").data(event));
+        }
+    }
+
+    private void sendDoneQuietly() {
+        try {
+            Map<String, Object> done = new HashMap<>();
+            if (usage != null) {
+                done.put("usage", usage);
+            }
+            emitter.send(SseEmitter.event().name("done").data(done));
+            emitter.complete();
+        } catch (Exception ex) {
+            emitter.completeWithError(ex);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.chat;
+
+import com.example.dto.ChatMessageDelivery;
+import com.example.dto.ChatMessageDto;
+import com.example.dto.ChatSessionSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 聊天帧的统一出口：消息、发送回执与错误帧都经由这里推给用户队列。
+ * 只走 /user/queue/chat 一条路径，每条消息对发送方、接收方各发一帧。
+ */
+@Component
+public class ChatDeliveryPublisher {
+
+    private static final String USER_DESTINATION = "/queue/chat";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary framesPerMessage;
+
+    public ChatDeliveryPublisher(SimpMessagingTemplate messagingTemplate,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.framesPerMessage = DistributionSummary.builder("chat.frames.per.message")
+            .description("Broker publishes per delivered chat message")
+            .register(meterRegistry);
+    }
+
+    public void publish(ChatMessageDelivery delivery) {
+        // 消息体只序列化一次，发送方与接收方的帧仅会话摘要不同
+        RawValue message = serialize(delivery.getMessage());
+        String clientMessageId = delivery.getMessage() == null ? null : delivery.getMessage().getClientMessageId();
+        int frames = 0;
+        if (delivery.getSenderUsername() != null) {
+            send(delivery.getSenderUsername(), messageFrame(message, clientMessageId, delivery.getSenderSession()), "message");
+            frames++;
+        }
+        if (delivery.getReceiverUsername() != null) {
+            send(delivery.getReceiverUsername(), messageFrame(message, clientMessageId, delivery.getReceiverSession()), "message");
+            frames++;
+        }
+        framesPerMessage.record(frames);
+    }
+
+    /**
+     * 消息进入写队列即回执发送方，seq 为全局递增序号，客户端可据此排序与去重。
+     */
+    public void publishAck(String username, String clientMessageId, String sessionKey, long sequence) {
+        if (username == null || username.isBlank()) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", "ACK");
+        payload.put("seq", sequence);
+        payload.put("sessionId", sessionKey);
+        if (clientMessageId != null) {
+            payload.put("clientMessageId", clientMessageId);
+        }
+        send(username, payload, "ack");
+    }
+
+    public void publishError(String username, String message, String clientMessageId) {
+        if (username == null || username.isBlank()) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", "ERROR");
+        payload.put("message", message);
+        if (clientMessageId != null) {
+            payload.put("clientMessageId", clientMessageId);
+        }
+        send(username, payload, "error");
+    }
+
+    private Map<String, Object> messageFrame(RawValue message, String clientMessageId, ChatSessionSummary session) {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("message", message);
+        frame.put("session", session);
+        if (clientMessageId != null) {
+            frame.put("clientMessageId", clientMessageId);
+        }
+        return frame;
+    }
+
+    private void send(String username, Map<String, Object> frame, String kind) {
+        messagingTemplate.convertAndSendToUser(username, USER_DESTINATION, frame);
+        meterRegistry.counter("chat.frames.sent", "kind", kind).increment();
+    }
+
+    private RawValue serialize(ChatMessageDto message) {
+        try {
+            return new RawValue(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("failed to serialize chat message", ex);
+        }
+    }
+}
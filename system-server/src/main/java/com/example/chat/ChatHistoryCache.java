@@ -0,0 +1,234 @@
+package com.example.chat;
+
+import com.example.dto.ChatMessageDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 每个会话最近 N 条消息的内存窗口，供不带 beforeId 的历史查询直接返回。
+ * 会话之间按 LRU 淘汰，总占用按估算字节数控制在预算内。
+ * 窗口只在已从库中完整加载过的会话上追加新消息；冷会话首次查询时用 stamp/seed 装载，
+ * 装载期间若该会话有新消息写入则放弃本次装载，避免窗口缺消息。
+ * 窗口只能看到本节点的写入，chat.broker.mode=relay（多节点）时自动关闭。
+ */
+@Component
+@Slf4j
+public class ChatHistoryCache {
+
+    private static final int STRIPES = 64;
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Window> windows = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STRIPES);
+    private volatile long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChatHistoryCache(
+            MeterRegistry meterRegistry,
+            @Value("${chat.history.cache.enabled:true}") boolean enabled,
+            @Value("${chat.history.cache.messages-per-session:50}") int capacity,
+            @Value("${chat.history.cache.max-bytes:33554432}") long maxBytes,
+            @Value("${chat.broker.mode:simple}") String brokerMode) {
+        boolean multiNode = "relay".equalsIgnoreCase(brokerMode);
+        if (enabled && multiNode) {
+            log.info("chat.broker.mode=relay，其他节点的写入与已读不会同步到本节点，聊天历史内存窗口已关闭");
+        }
+        this.enabled = enabled && !multiNode;
+        this.capacity = Math.max(capacity, 1);
+        this.maxBytes = Math.max(maxBytes, 0);
+        this.hits = Counter.builder("chat.history.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.cache").tag("result", "miss").register(meterRegistry);
+        meterRegistry.gauge("chat.history.cache.bytes", this, cache -> cache.totalBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 返回最近 limit 条（按 id 升序）；窗口不足以回答时返回 null，由调用方查库。
+     */
+    public List<ChatMessageDto> recent(Integer sessionId, int limit) {
+        if (!enabled || sessionId == null || limit <= 0 || limit > capacity) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Window window = windows.get(sessionId);
+            if (window == null || (window.messages.size() < limit && !window.holdsAll)) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            int skip = Math.max(window.messages.size() - limit, 0);
+            List<ChatMessageDto> result = new ArrayList<>(Math.min(limit, window.messages.size()));
+            Iterator<ChatMessageDto> it = window.messages.iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                ChatMessageDto dto = it.next();
+                if (i >= skip) {
+                    result.add(copyOf(dto));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 查库前取一个写入戳，装载时据此判断期间是否有新消息。
+     */
+    public long stamp(Integer sessionId) {
+        return sessionId == null ? 0 : writeStamps.get(stripe(sessionId));
+    }
+
+    /**
+     * 用库中查到的最近 limit 条（id 升序）装载窗口。
+     */
+    public void seed(Integer sessionId, long stamp, List<ChatMessageDto> latest, int limit) {
+        if (!enabled || sessionId == null || latest == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (windows.containsKey(sessionId) || writeStamps.get(stripe(sessionId)) != stamp) {
+                return;
+            }
+            Window window = new Window();
+            window.holdsAll = latest.size() < limit;
+            for (ChatMessageDto dto : latest) {
+                window.add(copyOf(dto), capacity);
+            }
+            windows.put(sessionId, window);
+            totalBytes += window.bytes;
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 消息提交后追加；窗口不存在时只推进写入戳，让进行中的装载作废。
+     */
+    public void append(Integer sessionId, ChatMessageDto message) {
+        if (!enabled || sessionId == null || message == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            writeStamps.incrementAndGet(stripe(sessionId));
+            Window window = windows.get(sessionId);
+            if (window == null) {
+                return;
+            }
+            long before = window.bytes;
+            if (!window.add(copyOf(message), capacity)) {
+                // 并发提交导致乱序到达时整窗作废，下次查询重新装载
+                windows.remove(sessionId);
+                totalBytes -= before;
+                return;
+            }
+            totalBytes += window.bytes - before;
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已读提交后更新窗口中的标记；同样推进写入戳，避免进行中的装载带着未读标记落入窗口。
+     */
+    public void markRead(Integer sessionId, String receiverRole, Integer receiverId) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            writeStamps.incrementAndGet(stripe(sessionId));
+            Window window = windows.get(sessionId);
+            if (window == null) {
+                return;
+            }
+            for (ChatMessageDto dto : window.messages) {
+                if (Objects.equals(dto.getReceiverRole(), receiverRole) && Objects.equals(dto.getReceiverId(), receiverId)) {
+                    dto.setRead(Boolean.TRUE);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Integer, Window>> it = windows.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Window eldest = it.next().getValue();
+            totalBytes -= eldest.bytes;
+            it.remove();
+        }
+    }
+
+    private int stripe(Integer sessionId) {
+        return Math.floorMod(sessionId, STRIPES);
+    }
+
+    private static long estimateBytes(ChatMessageDto dto) {
+        String content = dto.getContent();
+        return ENTRY_OVERHEAD_BYTES + (content == null ? 0 : content.length() * 2L);
+    }
+
+    private static ChatMessageDto copyOf(ChatMessageDto source) {
+        return ChatMessageDto.builder()
+                .id(source.getId())
+                .sessionId(source.getSessionId())
+                .orderId(source.getOrderId())
+                .senderId(source.getSenderId())
+                .senderRole(source.getSenderRole())
+                .receiverId(source.getReceiverId())
+                .receiverRole(source.getReceiverRole())
+                .content(source.getContent())
+                .read(source.getRead())
+                .createdAt(source.getCreatedAt())
+                .build();
+    }
+
+    private static final class Window {
+        private final ArrayDeque<ChatMessageDto> messages = new ArrayDeque<>();
+        private long bytes;
+        private boolean holdsAll;
+
+        boolean add(ChatMessageDto dto, int capacity) {
+            ChatMessageDto last = messages.peekLast();
+            if (last != null && dto.getId() != null && last.getId() != null && dto.getId() <= last.getId()) {
+                return false;
+            }
+            messages.addLast(dto);
+            bytes += estimateBytes(dto);
+            while (messages.size() > capacity) {
+                bytes -= estimateBytes(messages.removeFirst());
+                holdsAll = false;
+            }
+            return true;
+        }
+    }
+}
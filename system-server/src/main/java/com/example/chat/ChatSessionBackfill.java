@@ -0,0 +1,37 @@
+package com.example.chat;
+
+import com.example.mapper.ChatSessionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 一次性补建历史订单对应的聊天会话。会话现由订单生命周期创建，
+ * 升级前已存在的订单需在首次部署时打开 chat.sessions.backfill-on-startup 跑一遍。
+ */
+@Component
+@Slf4j
+public class ChatSessionBackfill implements ApplicationRunner {
+
+    private final ChatSessionMapper chatSessionMapper;
+    private final boolean enabled;
+
+    public ChatSessionBackfill(
+            ChatSessionMapper chatSessionMapper,
+            @Value("${chat.sessions.backfill-on-startup:false}") boolean enabled) {
+        this.chatSessionMapper = chatSessionMapper;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        int guests = chatSessionMapper.backfillFromOrders("GUEST");
+        int couriers = chatSessionMapper.backfillFromOrders("DELIVERYMAN");
+        log.info("会话补建完成: 顾客 {} 个, 骑手 {} 个", guests, couriers);
+    }
+}
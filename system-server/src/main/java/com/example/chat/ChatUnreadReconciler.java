@@ -0,0 +1,45 @@
+package com.example.chat;
+
+import com.example.mapper.ChatUnreadCounterMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期以 chat_message 为准校正 chat_unread_counter，修复发送/已读路径之外产生的计数漂移。
+ */
+@Component
+@Slf4j
+public class ChatUnreadReconciler {
+
+    private final ChatUnreadCounterMapper chatUnreadCounterMapper;
+    private final boolean enabled;
+    private final int graceSeconds;
+
+    public ChatUnreadReconciler(
+            ChatUnreadCounterMapper chatUnreadCounterMapper,
+            @Value("${chat.unread.reconcile.enabled:true}") boolean enabled,
+            @Value("${chat.unread.reconcile.grace-seconds:60}") int graceSeconds) {
+        this.chatUnreadCounterMapper = chatUnreadCounterMapper;
+        this.enabled = enabled;
+        this.graceSeconds = Math.max(graceSeconds, 0);
+    }
+
+    @Scheduled(cron = "${chat.unread.reconcile.cron:0 */10 * * * *}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int rebuilt = chatUnreadCounterMapper.rebuildFromMessages(graceSeconds);
+            int cleared = chatUnreadCounterMapper.clearStale(graceSeconds);
+            if (rebuilt > 0 || cleared > 0) {
+                log.info("未读计数校正完成: 重算影响 {} 行, 清零 {} 行", rebuilt, cleared);
+            }
+        } catch (DataAccessException ex) {
+            log.warn("未读计数校正失败: {}", ex.getMessage());
+        }
+    }
+}
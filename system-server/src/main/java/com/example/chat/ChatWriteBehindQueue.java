@@ -0,0 +1,182 @@
+package com.example.chat;
+
+import com.example.dto.ChatMessageDelivery;
+import com.example.dto.PendingChatMessage;
+import com.example.service.ChatService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天消息写后队列。
+ * 入站消息校验通过后分配全局序号并立即回执，由单个写线程按入队顺序成批落库后再推送，
+ * 因此同一会话内的落库与推送顺序与入队顺序一致。
+ * 未落库消息的上限由队列容量约束，入队到提交的耗时记录在 chat.writebehind.lag。
+ * STOMP 与 REST 发送都经由本队列；REST 调用方通过 PendingChatMessage.completion 等待落库结果。
+ */
+@Component
+@Slf4j
+public class ChatWriteBehindQueue {
+
+    private final ChatService chatService;
+    private final ChatDeliveryPublisher deliveryPublisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long lingerMs;
+    private final BlockingQueue<PendingChatMessage> queue;
+
+    private final Timer lagTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter failures;
+
+    private long sequence;
+    private volatile boolean running;
+    private Thread writer;
+
+    public ChatWriteBehindQueue(
+            ChatService chatService,
+            ChatDeliveryPublisher deliveryPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${chat.write-behind.enabled:true}") boolean enabled,
+            @Value("${chat.write-behind.capacity:10000}") int capacity,
+            @Value("${chat.write-behind.batch-size:200}") int batchSize,
+            @Value("${chat.write-behind.linger-ms:5}") long lingerMs) {
+        this.chatService = chatService;
+        this.deliveryPublisher = deliveryPublisher;
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lingerMs = Math.max(lingerMs, 0);
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.lagTimer = Timer.builder("chat.writebehind.lag")
+                .description("Time from enqueue to commit of a chat message")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.writebehind.batch.size")
+                .register(meterRegistry);
+        this.failures = Counter.builder("chat.writebehind.failures")
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.writebehind.queue.depth", queue, BlockingQueue::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 入队并返回全局序号；队列已满时抛出 IllegalStateException，由调用方回错误帧。
+     * 加锁保证序号与入队顺序一致。
+     */
+    public synchronized long submit(PendingChatMessage pending) {
+        long next = sequence + 1;
+        pending.setSequence(next);
+        pending.setEnqueuedNanos(System.nanoTime());
+        if (!queue.offer(pending)) {
+            throw new IllegalStateException("消息发送繁忙，请稍后再试");
+        }
+        sequence = next;
+        return next;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "chat-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void runWriter() {
+        List<PendingChatMessage> batch = new ArrayList<>(batchSize);
+        // 停止后继续把队列中剩余的消息写完
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingChatMessage first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (batch.size() < batchSize && lingerMs > 0 && running) {
+                    // 短暂等待以便高峰期把更多消息并入同一次提交
+                    PendingChatMessage next = queue.poll(lingerMs, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException ex) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingChatMessage> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<ChatMessageDelivery> deliveries = chatService.persistBatch(batch);
+            publish(batch, deliveries);
+        } catch (Exception ex) {
+            log.warn("聊天消息批量写入失败，逐条重试 size={}: {}", batch.size(), ex.getMessage());
+            // 整批已回滚，逐条重写以隔离出问题的那一条，其余消息照常送达
+            for (PendingChatMessage pending : batch) {
+                pending.getMessage().setId(null);
+                try {
+                    publish(List.of(pending), chatService.persistBatch(List.of(pending)));
+                } catch (Exception single) {
+                    failures.increment();
+                    log.error("聊天消息写入失败 seq={}", pending.getSequence(), single);
+                    if (pending.getCompletion() != null) {
+                        pending.getCompletion().completeExceptionally(single);
+                    }
+                    deliveryPublisher.publishError(pending.getSenderUsername(), "发送失败，请稍后再试",
+                            pending.getClientMessageId());
+                }
+            }
+        }
+    }
+
+    private void publish(List<PendingChatMessage> batch, List<ChatMessageDelivery> deliveries) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingChatMessage pending = batch.get(i);
+            lagTimer.record(now - pending.getEnqueuedNanos(), TimeUnit.NANOSECONDS);
+            if (pending.getCompletion() != null) {
+                pending.getCompletion().complete(deliveries.get(i));
+            }
+            try {
+                deliveryPublisher.publish(deliveries.get(i));
+            } catch (Exception ex) {
+                log.warn("聊天消息推送失败 seq={}: {}", pending.getSequence(), ex.getMessage());
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.common;
 
+import com.example.security.SecurityContext;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+
 import java.util.Map;
 
 @Data
@@ -13,6 +17,11 @@ public class DataRequest {
     private Integer page;
     private Integer size;
 
+    // 服务端填入的已认证用户，不参与 JSON 反序列化，客户端无法伪造
+    @JsonIgnore
+    @ToString.Exclude
+    private SecurityContext.AuthenticatedUser principal;
+
     public boolean hasPagination() {
         return page != null && size != null;
     }
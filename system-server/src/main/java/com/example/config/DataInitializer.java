@@ -13,11 +13,13 @@ import com.example.entity.UserRole;
 import com.example.mapper.DeliverymanMapper;
 import com.example.mapper.ChatSessionMapper;
 import com.example.mapper.ChatMessageMapper;
+import com.example.mapper.ChatUnreadCounterMapper;
 import com.example.mapper.MenuItemMapper;
 import com.example.mapper.RestaurantMapper;
 import com.example.mapper.RestaurantReviewMapper;
 import com.example.mapper.RestaurateurMapper;
 import com.example.mapper.UserMapper;
+import com.example.stats.DailyStatsRollup;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -53,6 +55,8 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
     private final MenuItemMapper menuItemMapper;
     private final ChatSessionMapper chatSessionMapper;
     private final ChatMessageMapper chatMessageMapper;
+    private final ChatUnreadCounterMapper chatUnreadCounterMapper;
+    private final DailyStatsRollup dailyStatsRollup;
 
     private final AtomicBoolean initialized = new AtomicBoolean(false);
 
@@ -68,12 +72,16 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
         seedRestaurantReviews();
         seedMenuItems();
         seedSampleOrders();
+        dailyStatsRollup.rebuildAll();
         seedChatData();
+        backfillChatSessions();
         log.info("Database reset complete. Seed users, menu items, and sample orders inserted.");
     }
 
     private void prepareSchema() {
         ensureColumnWithCheck("restaurant", "description", "ALTER TABLE restaurant ADD COLUMN description TEXT NULL");
+        // Token 吊销点：签发时间早于该时刻的 Token 一律拒绝，各节点经 UserCache 读取
+        ensureColumnWithCheck("user", "tokens_valid_after", "ALTER TABLE `user` ADD COLUMN tokens_valid_after DATETIME NULL");
 
         jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS chat_session (" +
                 "id INT AUTO_INCREMENT PRIMARY KEY," +
@@ -115,6 +123,16 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
         ensureColumnWithCheck("chat_message", "context_ref", "ALTER TABLE chat_message ADD COLUMN context_ref INT NULL");
         ensureColumnWithCheck("chat_message", "read_flag", "ALTER TABLE chat_message ADD COLUMN read_flag TINYINT(1) NOT NULL DEFAULT 0");
 
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS chat_unread_counter (" +
+            "session_id INT NOT NULL," +
+            "receiver_role VARCHAR(32) NOT NULL," +
+            "receiver_id INT NOT NULL," +
+            "unread_count INT NOT NULL DEFAULT 0," +
+            "updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP," +
+            "PRIMARY KEY (session_id, receiver_role, receiver_id)," +
+            "KEY idx_unread_receiver (receiver_role, receiver_id)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;");
+
         jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS menu_item (" +
                 "id INT AUTO_INCREMENT PRIMARY KEY," +
                 "restaurateur_id INT NOT NULL," +
@@ -131,6 +149,13 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
                 "KEY idx_menu_category (category)" +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;");
 
+        // 会话列表的排序键：有消息按最后消息时间，否则按创建时间
+        ensureColumnWithCheck("chat_session", "activity_at", "ALTER TABLE chat_session ADD COLUMN activity_at DATETIME AS (COALESCE(last_message_time, created_at)) STORED");
+        ensureIndex("chat_session", "idx_chat_session_restaurateur_seek",
+                "CREATE INDEX idx_chat_session_restaurateur_seek ON chat_session (restaurateur_id, activity_at DESC, id DESC)");
+        ensureIndex("chat_session", "idx_chat_session_peer_seek",
+                "CREATE INDEX idx_chat_session_peer_seek ON chat_session (peer_user_id, peer_role, activity_at DESC, id DESC)");
+
         jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS order_item (" +
                 "id INT AUTO_INCREMENT PRIMARY KEY," +
                 "order_id INT NOT NULL," +
@@ -145,6 +170,34 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
 
         ensureColumnWithCheck("order_info", "delivery_address", "ALTER TABLE order_info ADD COLUMN delivery_address VARCHAR(255) NULL");
         ensureColumnWithCheck("order_info", "total_amount", "ALTER TABLE order_info ADD COLUMN total_amount DECIMAL(10,2) NOT NULL DEFAULT 0");
+        // 订单列表的排序键落成存储列，配合复合索引支持游标分页
+        // 状态机写入的是 PROCESSING，IN_PROGRESS 只出现在演示数据中，两者同为“进行中”
+        String statusRank = "status_rank TINYINT AS (CASE status WHEN 'PENDING' THEN 1 WHEN 'PROCESSING' THEN 2 " +
+                "WHEN 'IN_PROGRESS' THEN 2 WHEN 'READY' THEN 3 WHEN 'COMPLETED' THEN 4 ELSE 5 END) STORED";
+        ensureColumnWithCheck("order_info", "status_rank", "ALTER TABLE order_info ADD COLUMN " + statusRank);
+        // 早先建出的列没有 PROCESSING 分支，按新表达式重建
+        ensureGenerationExpression("order_info", "status_rank", "PROCESSING",
+                "ALTER TABLE order_info MODIFY COLUMN " + statusRank);
+        ensureColumnWithCheck("order_info", "activity_at", "ALTER TABLE order_info ADD COLUMN activity_at DATETIME AS (COALESCE(updated_at, created_at)) STORED");
+        ensureIndex("order_info", "idx_order_seek",
+                "CREATE INDEX idx_order_seek ON order_info (restaurateur_id, status_rank, activity_at DESC, id DESC)");
+        ensureIndex("order_info", "idx_order_status_seek",
+                "CREATE INDEX idx_order_status_seek ON order_info (restaurateur_id, status, activity_at DESC, id DESC)");
+
+        ensureColumnWithCheck("order_info", "idempotency_key", "ALTER TABLE order_info ADD COLUMN idempotency_key VARCHAR(64) NULL");
+        ensureIndex("order_info", "uk_order_idempotency",
+                "CREATE UNIQUE INDEX uk_order_idempotency ON order_info (user_id, idempotency_key)");
+        ensureIndex("order_info", "idx_order_created", "CREATE INDEX idx_order_created ON order_info (created_at)");
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS restaurateur_daily_stats (" +
+                "restaurateur_id INT NOT NULL," +
+                "stat_date DATE NOT NULL," +
+                "income DECIMAL(12,2) NOT NULL DEFAULT 0," +
+                "order_count INT NOT NULL DEFAULT 0," +
+                "dish_count INT NOT NULL DEFAULT 0," +
+                "updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP," +
+                "PRIMARY KEY (restaurateur_id, stat_date)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;");
 
         jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS restaurant_review (" +
                 "id INT AUTO_INCREMENT PRIMARY KEY," +
@@ -178,8 +231,10 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
         List<String> tables = Arrays.asList(
                 "order_item",
                 "order_info",
+                "restaurateur_daily_stats",
             "menu_item",
                 "chat_message",
+                "chat_unread_counter",
                 "chat_session",
                 "restaurant_review_like",
                 "restaurant_review",
@@ -844,12 +899,20 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
                 LocalDateTime lastTime = base.plusMinutes(12 + extras.length);
                 jdbcTemplate.update("UPDATE chat_session SET last_message_preview=?, last_message_time=?, updated_at=? WHERE id=?",
                         "下单页勾选即可", java.sql.Timestamp.valueOf(lastTime), java.sql.Timestamp.valueOf(lastTime), exist.getId());
+                // 种子消息绕过了发送流程，按消息表一次性生成未读计数
+                chatUnreadCounterMapper.rebuildFromMessages(0);
                 }
         } catch (Exception ex) {
             log.warn("Seed chat data skipped: {}", ex.getMessage());
         }
     }
 
+    private void backfillChatSessions() {
+        int guests = chatSessionMapper.backfillFromOrders("GUEST");
+        int couriers = chatSessionMapper.backfillFromOrders("DELIVERYMAN");
+        log.info("Backfilled {} guest and {} deliveryman chat sessions from orders", guests, couriers);
+    }
+
     private void insertChat(Integer sessionId, Integer orderId,
                              Integer senderId, String senderRole,
                              Integer receiverId, String receiverRole,
@@ -900,6 +963,44 @@ public class DataInitializer implements ApplicationListener<ApplicationReadyEven
         }
     }
 
+    /**
+     * 已存在的生成列的表达式不含 expected 时执行 ddl 重建。
+     */
+    private void ensureGenerationExpression(String table, String column, String expected, String ddl) {
+        if (!tableExists(table) || !columnExists(table, column)) {
+            return;
+        }
+        String sql = "SELECT generation_expression FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+        String expression = jdbcTemplate.queryForObject(sql, String.class, table, column);
+        if (expression == null || expression.contains(expected)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute(ddl);
+            log.info("Rebuilt generated column {}.{}", table, column);
+        } catch (DataAccessException ex) {
+            log.warn("Failed to rebuild generated column {}.{}: {}", table, column, ex.getMessage());
+        }
+    }
+
+    private void ensureIndex(String table, String index, String ddl) {
+        if (!tableExists(table) || indexExists(table, index)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute(ddl);
+            log.info("Added index {} on {}", index, table);
+        } catch (DataAccessException ex) {
+            log.warn("Failed to add index {} on {}: {}", index, table, ex.getMessage());
+        }
+    }
+
+    private boolean indexExists(String tableName, String indexName) {
+        String sql = "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, tableName, indexName);
+        return count != null && count > 0;
+    }
+
     private boolean columnExists(String tableName, String columnName) {
         String sql = "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, tableName, columnName);
@@ -0,0 +1,100 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按语句 ID（如 OrderMapper.pageByStatus）记录每次 Mapper 调用的耗时与返回行数。
+ * 耗时发布直方图桶，Prometheus 侧可按语句算分位数；查询记结果行数，更新记影响行数。
+ */
+@Component
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public MapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        StatementMeters statementMeters = meters.computeIfAbsent(statement.getId(), id -> register(statement));
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            statementMeters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            statementMeters.rows.record(rowCount(result));
+            return result;
+        } catch (Throwable ex) {
+            statementMeters.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    private StatementMeters register(MappedStatement statement) {
+        String name = shortId(statement.getId());
+        String type = statement.getSqlCommandType().name();
+        return new StatementMeters(
+            timer(name, type, "success"),
+            timer(name, type, "error"),
+            DistributionSummary.builder("mybatis.statement.rows")
+                .description("Rows returned or affected per mapper statement")
+                .tag("statement", name)
+                .tag("type", type)
+                .register(meterRegistry));
+    }
+
+    private Timer timer(String name, String type, String outcome) {
+        return Timer.builder("mybatis.statement")
+            .description("Mapper statement execution time")
+            .tag("statement", name)
+            .tag("type", type)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    static String shortId(String id) {
+        // com.example.mapper.OrderMapper.pageByStatus -> OrderMapper.pageByStatus
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return type >= 0 ? id.substring(type + 1) : id;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        return result == null ? 0 : 1;
+    }
+
+    private record StatementMeters(Timer success, Timer error, DistributionSummary rows) {
+    }
+}
@@ -18,7 +18,9 @@ import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 public class MybatisConfig {
 
     @Bean
-    public SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws Exception {
+    public SqlSessionFactory sqlSessionFactory(DataSource dataSource,
+                                               MapperMetricsInterceptor mapperMetricsInterceptor,
+                                               QueryBudgetInterceptor queryBudgetInterceptor) throws Exception {
         SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
         factoryBean.setDataSource(dataSource);
         factoryBean.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath*:xml/*.xml"));
@@ -26,6 +28,7 @@ public class MybatisConfig {
         org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
         configuration.setMapUnderscoreToCamelCase(true);
         factoryBean.setConfiguration(configuration);
+        factoryBean.setPlugins(mapperMetricsInterceptor, queryBudgetInterceptor);
         return factoryBean.getObject();
     }
 
@@ -0,0 +1,201 @@
+package com.example.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 按请求统计 SQL 条数的 MyBatis 插件，用来发现逐行查询（N+1）和慢语句。
+ * 每个 HTTP 请求、每条 STOMP 入站消息在处理线程上开一个统计范围：
+ * 总语句数超过 max-statements，或同一语句 ID 执行超过 max-repeats 次时，在请求结束时记一条告警并带上接口；
+ * fail-fast 打开时（CI 使用）在越界的那条语句上直接抛异常，让请求失败。
+ * 单条语句超过 slow-statement-ms 时不论是否在范围内都记慢查询日志。
+ */
+@Component
+@Slf4j
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class QueryBudgetInterceptor implements Interceptor {
+
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final int maxRepeats;
+    private final long slowStatementNanos;
+    private final boolean failFast;
+
+    private final HandlerInterceptor httpScope = new HttpScope();
+    private final ExecutorChannelInterceptor stompScope = new StompScope();
+
+    public QueryBudgetInterceptor(
+            @Value("${mybatis.query-budget.enabled:true}") boolean enabled,
+            @Value("${mybatis.query-budget.max-statements:50}") int maxStatements,
+            @Value("${mybatis.query-budget.max-repeats:10}") int maxRepeats,
+            @Value("${mybatis.query-budget.slow-statement-ms:500}") long slowStatementMs,
+            @Value("${mybatis.query-budget.fail-fast:false}") boolean failFast) {
+        this.enabled = enabled;
+        this.maxStatements = Math.max(maxStatements, 1);
+        this.maxRepeats = Math.max(maxRepeats, 1);
+        this.slowStatementNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(slowStatementMs, 0));
+        this.failFast = failFast;
+    }
+
+    public HandlerInterceptor httpScope() {
+        return httpScope;
+    }
+
+    public ExecutorChannelInterceptor stompScope() {
+        return stompScope;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!enabled) {
+            return invocation.proceed();
+        }
+        String statementId = MapperMetricsInterceptor.shortId(((MappedStatement) invocation.getArgs()[0]).getId());
+        Scope scope = current.get();
+        if (scope != null) {
+            scope.record(statementId);
+        }
+        long start = System.nanoTime();
+        Object result = invocation.proceed();
+        long elapsed = System.nanoTime() - start;
+        if (slowStatementNanos > 0 && elapsed >= slowStatementNanos) {
+            log.warn("慢查询 statement={} elapsedMs={} endpoint={}", statementId,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), scope == null ? "-" : scope.endpoint);
+        }
+        return result;
+    }
+
+    private void begin(String endpoint) {
+        if (!enabled) {
+            return;
+        }
+        Scope scope = current.get();
+        if (scope != null) {
+            // 范围嵌套时（如转发）沿用外层统计
+            scope.depth++;
+            return;
+        }
+        current.set(new Scope(endpoint));
+    }
+
+    private void end() {
+        Scope scope = current.get();
+        if (scope == null) {
+            return;
+        }
+        if (scope.depth > 0) {
+            scope.depth--;
+            return;
+        }
+        current.remove();
+        if (scope.overBudget() && !scope.reported) {
+            log.warn("SQL 条数超出预算 endpoint={} total={} repeated={}", scope.endpoint, scope.total, scope.repeated());
+        }
+    }
+
+    private final class Scope {
+        private final String endpoint;
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private int total;
+        private int depth;
+        private boolean reported;
+
+        private Scope(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void record(String statementId) {
+            total++;
+            int repeats = counts.merge(statementId, 1, Integer::sum);
+            if (failFast && !reported && (total > maxStatements || repeats > maxRepeats)) {
+                reported = true;
+                throw new IllegalStateException("SQL 条数超出预算: endpoint=" + endpoint + ", total=" + total
+                    + ", statement=" + statementId + " x" + repeats);
+            }
+        }
+
+        boolean overBudget() {
+            return total > maxStatements || counts.values().stream().anyMatch(count -> count > maxRepeats);
+        }
+
+        String repeated() {
+            return counts.entrySet().stream()
+                .filter(entry -> entry.getValue() > maxRepeats)
+                .map(entry -> entry.getKey() + " x" + entry.getValue())
+                .collect(Collectors.joining(", ", "[", "]"));
+        }
+    }
+
+    private final class HttpScope implements AsyncHandlerInterceptor {
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            begin(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            end();
+        }
+
+        /**
+         * 异步请求（如 SSE）在请求线程返回时不会回调 afterCompletion，这里结束本线程上的统计范围。
+         */
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            end();
+        }
+    }
+
+    private final class StompScope implements ExecutorChannelInterceptor {
+        @Override
+        public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+            // 入站帧还会经过代理与用户目的地处理器，只统计 @MessageMapping 的那一次
+            if (handler instanceof SimpAnnotationMethodMessageHandler) {
+                begin("STOMP " + SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            }
+            return message;
+        }
+
+        @Override
+        public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+            if (handler instanceof SimpAnnotationMethodMessageHandler) {
+                end();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 统计客户端入站与出站的 STOMP 帧数（stomp.frames），按方向与帧类型区分。
+ * 入站在鉴权拦截器之后计数，被拒绝的帧不计入。
+ */
+@Component
+public class StompFrameMetricsInterceptor {
+
+    private final ChannelInterceptor inbound;
+    private final ChannelInterceptor outbound;
+
+    public StompFrameMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.inbound = counting(meterRegistry, "inbound");
+        this.outbound = counting(meterRegistry, "outbound");
+    }
+
+    public ChannelInterceptor inbound() {
+        return inbound;
+    }
+
+    public ChannelInterceptor outbound() {
+        return outbound;
+    }
+
+    private static ChannelInterceptor counting(MeterRegistry meterRegistry, String direction) {
+        Map<SimpMessageType, Counter> counters = new EnumMap<>(SimpMessageType.class);
+        for (SimpMessageType type : SimpMessageType.values()) {
+            counters.put(type, Counter.builder("stomp.frames")
+                .description("STOMP frames exchanged with clients")
+                .tag("direction", direction)
+                .tag("type", type.name())
+                .register(meterRegistry));
+        }
+        return new ChannelInterceptor() {
+            @Override
+            public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+                SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+                if (sent && ex == null && type != null) {
+                    counters.get(type).increment();
+                }
+            }
+        };
+    }
+}
@@ -14,6 +14,7 @@ import java.nio.file.Path;
 public class WebMvcConfig implements WebMvcConfigurer {
 
 	private final JwtAuthInterceptor jwtAuthInterceptor;
+	private final QueryBudgetInterceptor queryBudgetInterceptor;
 
 	@Override
 	public void addResourceHandlers(ResourceHandlerRegistry registry) {
@@ -32,6 +33,8 @@ public class WebMvcConfig implements WebMvcConfigurer {
 						"/api/user/register",
 						"/api/user/avatar/**"
 				);
+		registry.addInterceptor(queryBudgetInterceptor.httpScope())
+				.addPathPatterns("/api/**");
 	}
 }
 
@@ -1,6 +1,7 @@
 package com.example.config;
 
 import com.example.security.JwtUtil;
+import com.example.security.SecurityContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -53,9 +54,20 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
             accessor.getSessionAttributes().put("authToken", token);
             accessor.getSessionAttributes().put("authRole", parsed.get().getRole());
-            Principal principal = new WebSocketPrincipal(username.trim());
+            JwtUtil.TokenDetails details = parsed.get();
+            Principal principal = new WebSocketPrincipal(username.trim(), new SecurityContext.AuthenticatedUser(
+                username.trim(), details.getRole(), details.getUserId(), details.getIssuedAt(),
+                details.getExpiresAt(), details.getToken()));
             accessor.setUser(principal);
         }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            // 聊天只经用户队列投递，按用户名拼接的旧 topic 任何人都能订阅，直接拒绝
+            if (destination != null && destination.startsWith("/topic/chat/")) {
+                log.warn("拒绝订阅聊天 topic: {}", destination);
+                throw new IllegalArgumentException("不支持订阅该聊天频道");
+            }
+        }
         return message;
     }
 
@@ -1,7 +1,9 @@
 package com.example.config;
 
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -10,13 +12,52 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 @Configuration
 @EnableWebSocketMessageBroker
-@RequiredArgsConstructor
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
+    private final StompFrameMetricsInterceptor stompFrameMetricsInterceptor;
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+    private final String brokerMode;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final String relayVirtualHost;
+    private final boolean virtualThreads;
+
+    public WebSocketConfig(
+            WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor,
+            StompFrameMetricsInterceptor stompFrameMetricsInterceptor,
+            QueryBudgetInterceptor queryBudgetInterceptor,
+            @Value("${chat.broker.mode:simple}") String brokerMode,
+            @Value("${chat.broker.relay.host:localhost}") String relayHost,
+            @Value("${chat.broker.relay.port:61613}") int relayPort,
+            @Value("${chat.broker.relay.login:guest}") String relayLogin,
+            @Value("${chat.broker.relay.passcode:guest}") String relayPasscode,
+            @Value("${chat.broker.relay.virtual-host:}") String relayVirtualHost,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.webSocketAuthChannelInterceptor = webSocketAuthChannelInterceptor;
+        this.stompFrameMetricsInterceptor = stompFrameMetricsInterceptor;
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+        this.brokerMode = brokerMode;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayVirtualHost = relayVirtualHost;
+        // 虚拟线程需要 Java 21 运行时；低版本下 Spring Boot 也不会切换 Tomcat 与定时任务，这里保持一致
+        this.virtualThreads = virtualThreads && Runtime.version().feature() >= 21;
+        if (virtualThreads && !this.virtualThreads) {
+            log.warn("spring.threads.virtual.enabled 需要 Java 21+，当前 Java {}，STOMP 通道继续使用平台线程池",
+                Runtime.version().feature());
+        }
+    }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // 同一连接的入站帧按到达顺序处理，写队列分配的序号才与客户端发送顺序一致
+        registry.setPreserveReceiveOrder(true);
         registry.addEndpoint("/ws/chat")
             .setAllowedOriginPatterns("*")
             .withSockJS();
@@ -26,11 +67,51 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
-        registry.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // 多节点部署：消息经外部 STOMP 代理（如 RabbitMQ）转发，
+            // 用户会话注册表与无法在本节点解析的用户目的地在各节点间广播
+            var relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (relayVirtualHost != null && !relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
+        registry.setPreservePublishOrder(true);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthChannelInterceptor);
+        registration.interceptors(webSocketAuthChannelInterceptor, stompFrameMetricsInterceptor.inbound(),
+            queryBudgetInterceptor.stompScope());
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("stomp-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompFrameMetricsInterceptor.outbound());
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("stomp-outbound-"));
+        }
+    }
+
+    /**
+     * 每帧一个虚拟线程，处理线程阻塞在 JDBC 上时不再占住固定大小的通道线程池。
+     * 同一会话内的帧顺序仍由 preserveReceiveOrder/preservePublishOrder 保证。
+     */
+    private SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
     }
 }
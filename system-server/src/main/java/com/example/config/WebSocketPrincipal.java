@@ -1,14 +1,29 @@
 package com.example.config;
 
+import com.example.security.SecurityContext;
+
 import java.security.Principal;
 import java.util.Objects;
 
 public class WebSocketPrincipal implements Principal {
 
     private final String name;
+    private final SecurityContext.AuthenticatedUser user;
 
     public WebSocketPrincipal(String name) {
+        this(name, null);
+    }
+
+    public WebSocketPrincipal(String name, SecurityContext.AuthenticatedUser user) {
         this.name = Objects.requireNonNullElse(name, "anonymous");
+        this.user = user;
+    }
+
+    /**
+     * CONNECT 时由 Token 解析出的完整身份，连接期间随每条消息带入处理方法。
+     */
+    public SecurityContext.AuthenticatedUser getUser() {
+        return user;
     }
 
     @Override
@@ -1,20 +1,21 @@
 package com.example.controller;
 
+import com.example.chat.ChatDeliveryPublisher;
+import com.example.chat.ChatWriteBehindQueue;
 import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.dto.ChatMessageDelivery;
-import com.example.security.SecurityContext;
+import com.example.dto.PendingChatMessage;
 import com.example.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -22,8 +23,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ChatController {
 
+    private static final String SEND_FAILED = "发送失败，请稍后再试";
+
     private final ChatService chatService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatDeliveryPublisher deliveryPublisher;
+    private final ChatWriteBehindQueue writeBehindQueue;
 
     @PostMapping("/sessions")
     public Result<?> listSessions(@RequestBody DataRequest request) {
@@ -40,59 +44,36 @@ public class ChatController {
         return chatService.markRead(request);
     }
 
+    /**
+     * 与 STOMP 发送共用写后队列，保证同一会话的落库顺序一致；请求在消息落库并推送后返回。
+     */
     @PostMapping("/send")
-    public Result<?> send(@RequestBody DataRequest request) {
+    public CompletableFuture<Result<?>> send(@RequestBody DataRequest request) {
         Map<String, Object> data = request != null ? request.getData() : null;
         String clientMessageId = extractClientMessageId(data);
+        String username = request != null && request.getPrincipal() != null ? request.getPrincipal().username() : null;
         try {
-            ChatMessageDelivery delivery = chatService.dispatchMessage(request);
-            pushDelivery(delivery, clientMessageId);
-            return Result.success(delivery.getMessage());
-        } catch (IllegalArgumentException ex) {
+            if (!writeBehindQueue.isEnabled()) {
+                ChatMessageDelivery delivery = chatService.dispatchMessage(request);
+                deliveryPublisher.publish(delivery);
+                return CompletableFuture.completedFuture(Result.success(delivery.getMessage()));
+            }
+            PendingChatMessage pending = chatService.prepareMessage(request);
+            CompletableFuture<ChatMessageDelivery> delivered = new CompletableFuture<>();
+            pending.setCompletion(delivered);
+            writeBehindQueue.submit(pending);
+            // 写失败时写线程已推送错误帧
+            return delivered.<Result<?>>thenApply(delivery -> Result.success(delivery.getMessage()))
+                .exceptionally(ex -> Result.error(SEND_FAILED));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
             log.warn("Chat send rejected: {}", ex.getMessage());
-            sendErrorFrame(SecurityContext.currentUsername(), clientMessageId, ex.getMessage());
-            return Result.error(ex.getMessage());
+            deliveryPublisher.publishError(username, ex.getMessage(), clientMessageId);
+            return CompletableFuture.completedFuture(Result.error(ex.getMessage()));
         } catch (Exception ex) {
             log.error("Chat send failed", ex);
-            String fallback = "发送失败，请稍后再试";
-            sendErrorFrame(SecurityContext.currentUsername(), clientMessageId, fallback);
-            return Result.error(fallback);
-        }
-    }
-
-    private void pushDelivery(ChatMessageDelivery delivery, String clientMessageId) {
-        Map<String, Object> base = new HashMap<>();
-        base.put("message", delivery.getMessage());
-        if (clientMessageId != null) {
-            base.put("clientMessageId", clientMessageId);
-        }
-
-        Map<String, Object> senderFrame = new HashMap<>(base);
-        senderFrame.put("session", delivery.getSenderSession());
-        if (delivery.getSenderUsername() != null) {
-            messagingTemplate.convertAndSendToUser(delivery.getSenderUsername(), "/queue/chat", senderFrame);
-            messagingTemplate.convertAndSend("/topic/chat/" + delivery.getSenderUsername(), senderFrame);
-        }
-
-        if (delivery.getReceiverUsername() != null) {
-            Map<String, Object> receiverFrame = new HashMap<>(base);
-            receiverFrame.put("session", delivery.getReceiverSession());
-            messagingTemplate.convertAndSendToUser(delivery.getReceiverUsername(), "/queue/chat", receiverFrame);
-            messagingTemplate.convertAndSend("/topic/chat/" + delivery.getReceiverUsername(), receiverFrame);
-        }
-    }
-
-    private void sendErrorFrame(String username, String clientMessageId, String message) {
-        if (username == null || username.isBlank()) {
-            return;
-        }
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("type", "ERROR");
-        payload.put("message", message);
-        if (clientMessageId != null) {
-            payload.put("clientMessageId", clientMessageId);
+            deliveryPublisher.publishError(username, SEND_FAILED, clientMessageId);
+            return CompletableFuture.completedFuture(Result.error(SEND_FAILED));
         }
-        messagingTemplate.convertAndSendToUser(username, "/queue/chat", payload);
     }
 
     private String extractClientMessageId(Map<String, Object> data) {
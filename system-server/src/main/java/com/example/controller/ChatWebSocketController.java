@@ -1,14 +1,16 @@
 package com.example.controller;
 
+import com.example.chat.ChatDeliveryPublisher;
+import com.example.chat.ChatWriteBehindQueue;
 import com.example.common.DataRequest;
-import com.example.dto.ChatMessageDelivery;
+import com.example.config.WebSocketPrincipal;
 import com.example.dto.ChatWebSocketPayload;
+import com.example.dto.PendingChatMessage;
 import com.example.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -21,7 +23,8 @@ import java.util.Map;
 public class ChatWebSocketController {
 
     private final ChatService chatService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatDeliveryPublisher deliveryPublisher;
+    private final ChatWriteBehindQueue writeBehindQueue;
 
     @MessageMapping("/chat/send")
     public void handleSend(ChatWebSocketPayload payload, Principal principal) {
@@ -47,32 +50,25 @@ public class ChatWebSocketController {
 
         DataRequest request = new DataRequest();
         request.setData(data);
+        if (principal instanceof WebSocketPrincipal webSocketPrincipal) {
+            request.setPrincipal(webSocketPrincipal.getUser());
+        }
 
         try {
-            ChatMessageDelivery delivery = chatService.dispatchMessage(request);
-            Map<String, Object> base = new HashMap<>();
-            base.put("message", delivery.getMessage());
-            if (clientMessageId != null) {
-                base.put("clientMessageId", clientMessageId);
-            }
-
-            Map<String, Object> senderFrame = new HashMap<>(base);
-            senderFrame.put("session", delivery.getSenderSession());
-            messagingTemplate.convertAndSendToUser(delivery.getSenderUsername(), "/queue/chat", senderFrame);
-            messagingTemplate.convertAndSend("/topic/chat/" + delivery.getSenderUsername(), senderFrame);
-
-            if (delivery.getReceiverUsername() != null) {
-                Map<String, Object> receiverFrame = new HashMap<>(base);
-                receiverFrame.put("session", delivery.getReceiverSession());
-                messagingTemplate.convertAndSendToUser(delivery.getReceiverUsername(), "/queue/chat", receiverFrame);
-                messagingTemplate.convertAndSend("/topic/chat/" + delivery.getReceiverUsername(), receiverFrame);
+            if (!writeBehindQueue.isEnabled()) {
+                deliveryPublisher.publish(chatService.dispatchMessage(request));
+                return;
             }
-        } catch (IllegalArgumentException ex) {
+            PendingChatMessage pending = chatService.prepareMessage(request);
+            long sequence = writeBehindQueue.submit(pending);
+            deliveryPublisher.publishAck(pending.getSenderUsername(), clientMessageId,
+                pending.getSessionKey(), sequence);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
             log.warn("Failed to send chat message: {}", ex.getMessage());
-            sendError(username, ex.getMessage(), clientMessageId);
+            deliveryPublisher.publishError(username, ex.getMessage(), clientMessageId);
         } catch (Exception ex) {
             log.error("Unexpected error when sending chat message", ex);
-            sendError(username, "发送失败，请稍后再试", clientMessageId);
+            deliveryPublisher.publishError(username, "发送失败，请稍后再试", clientMessageId);
         }
     }
 
@@ -80,20 +76,7 @@ public class ChatWebSocketController {
     public void handleException(Throwable ex, Principal principal) {
         String username = principal == null ? null : principal.getName();
         if (username != null) {
-            sendError(username, ex.getMessage(), null);
-        }
-    }
-
-    private void sendError(String username, String message, String clientMessageId) {
-        if (username == null || username.isBlank()) {
-            return;
-        }
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("type", "ERROR");
-        payload.put("message", message);
-        if (clientMessageId != null) {
-            payload.put("clientMessageId", clientMessageId);
+            deliveryPublisher.publishError(username, ex.getMessage(), null);
         }
-        messagingTemplate.convertAndSendToUser(username, "/queue/chat", payload);
     }
 }
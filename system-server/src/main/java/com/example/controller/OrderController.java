@@ -9,6 +9,8 @@ import com.example.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/order")
 @RequiredArgsConstructor
@@ -16,6 +18,11 @@ public class OrderController {
 
     private final OrderService orderService;
 
+    @PostMapping("/create")
+    public Result<Map<String, Object>> create(@RequestBody DataRequest request) {
+        return orderService.createOrder(request);
+    }
+
     @PostMapping("/pending")
     public Result<PageResult<OrderListItemDto>> getPending(@RequestBody DataRequest request) {
         return orderService.getPendingOrders(request);
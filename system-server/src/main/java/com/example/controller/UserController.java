@@ -4,11 +4,16 @@ import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
 
 @RestController
@@ -59,26 +64,31 @@ public class UserController {
         return userService.uploadAvatar(request, file);
     }
 
+    /**
+     * 头像以 Resource 直接从磁盘流式写出，支持 Range；
+     * 带 ETag / Last-Modified，条件请求未变化时由框架返回 304。
+     */
     @GetMapping("/avatar/{filename:.+}")
-    public ResponseEntity<byte[]> getAvatar(@PathVariable String filename) {
-        Result<Map<String, Object>> result = userService.getAvatar(filename);
+    public ResponseEntity<Resource> getAvatar(@PathVariable String filename) throws IOException {
+        Result<Resource> result = userService.getAvatar(filename);
         if (result == null || result.getStatus() == null || result.getStatus() != 200 || result.getData() == null) {
             return ResponseEntity.notFound().build();
         }
 
-        Map<String, Object> data = result.getData();
-        byte[] bytes = (byte[]) data.get("bytes");
-        String contentType = data.get("contentType") instanceof String
-                ? (String) data.get("contentType")
-                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
-
-        if (bytes == null || bytes.length == 0) {
+        Resource avatar = result.getData();
+        long length = avatar.contentLength();
+        if (length == 0) {
             return ResponseEntity.notFound().build();
         }
+        long lastModified = avatar.lastModified();
 
+        // 头像文件名是上传时生成的 UUID，同名文件内容不变，大小与修改时间即可作为 ETag
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(bytes);
+                .contentType(MediaTypeFactory.getMediaType(avatar).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .eTag("\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"")
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)))
+                .body(avatar);
     }
 
     @PostMapping("/stats")
@@ -1,5 +1,6 @@
 package com.example.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,4 +22,9 @@ public class OrderListItemDto {
     private LocalDateTime createdAt;
     private String deliveryAddress;
     private String remark;
+    /** 排序键，仅用于生成游标，不对外输出 */
+    @JsonIgnore
+    private Integer statusRank;
+    @JsonIgnore
+    private LocalDateTime activityAt;
 }
@@ -10,6 +10,16 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PageResult<T> {
+    /** 游标分页的续页不统计总数时 total 取该值 */
+    public static final long TOTAL_UNKNOWN = -1L;
+
     private long total;
     private List<T> records;
+    /** 游标分页模式下的续页令牌，为空表示没有下一页 */
+    private String nextCursor;
+
+    public PageResult(long total, List<T> records) {
+        this.total = total;
+        this.records = records;
+    }
 }
@@ -0,0 +1,33 @@
+package com.example.dto;
+
+import com.example.entity.ChatMessage;
+import com.example.entity.ChatSession;
+import com.example.entity.OrderInfo;
+import com.example.entity.User;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 已通过校验、尚未落库的聊天消息，连同推送时需要的上下文一起进入写队列。
+ * 会话由写线程按 sessionKey 查找或创建后回填 session；completion 非空时在落库推送后完成。
+ */
+@Data
+@Builder
+public class PendingChatMessage {
+    private ChatMessage message;
+    private String sessionKey;
+    private OrderInfo order;
+    private String peerRole;
+    private User peerUser;
+    private ChatSession session;
+    private Integer restaurateurId;
+    private String clientMessageId;
+    private String senderUsername;
+    private Integer receiverUnreadKey;
+    private String receiverUsername;
+    private long sequence;
+    private long enqueuedNanos;
+    private CompletableFuture<ChatMessageDelivery> completion;
+}
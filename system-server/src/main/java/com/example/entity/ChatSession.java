@@ -17,6 +17,7 @@ public class ChatSession {
     private String title;
     private String lastMessagePreview;
     private LocalDateTime lastMessageTime;
+    private LocalDateTime activityAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
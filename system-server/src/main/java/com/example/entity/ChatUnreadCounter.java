@@ -0,0 +1,19 @@
+package com.example.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ChatUnreadCounter {
+
+    private Integer sessionId;
+
+    private String receiverRole;
+
+    private Integer receiverId;
+
+    private Integer unreadCount;
+
+    private LocalDateTime updatedAt;
+}
@@ -28,6 +28,8 @@ public class OrderInfo {
 
     private BigDecimal totalAmount;
 
+    private String idempotencyKey;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
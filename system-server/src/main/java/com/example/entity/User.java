@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class User {
 
@@ -31,6 +33,9 @@ public class User {
 
     private String avatarUrl;
 
+    // 签发时间早于该时刻的 Token 视为已吊销（修改密码时写入）
+    private LocalDateTime tokensValidAfter;
+
     private Deliveryman deliveryman;
 
     private Restaurateur restaurateur;
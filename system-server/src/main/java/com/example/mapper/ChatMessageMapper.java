@@ -11,6 +11,8 @@ public interface ChatMessageMapper {
 
     int insert(ChatMessage message);
 
+    int insertBatch(@Param("messages") List<ChatMessage> messages);
+
     ChatMessage selectLatest(@Param("sessionId") Integer sessionId);
 
     Integer countUnread(@Param("sessionId") Integer sessionId,
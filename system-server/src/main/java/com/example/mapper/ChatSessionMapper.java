@@ -16,15 +16,23 @@ public interface ChatSessionMapper {
 
     ChatSession findById(@Param("id") Integer id);
 
-    List<ChatSession> listByRestaurateur(@Param("restaurateurId") Integer restaurateurId);
+    List<ChatSession> listByRestaurateur(@Param("restaurateurId") Integer restaurateurId,
+                                         @Param("cursorActivityAt") LocalDateTime cursorActivityAt,
+                                         @Param("cursorId") Integer cursorId,
+                                         @Param("limit") int limit);
 
     List<ChatSession> listByPeer(@Param("peerUserId") Integer peerUserId,
-                                 @Param("peerRole") String peerRole);
+                                 @Param("peerRole") String peerRole,
+                                 @Param("cursorActivityAt") LocalDateTime cursorActivityAt,
+                                 @Param("cursorId") Integer cursorId,
+                                 @Param("limit") int limit);
 
     int updateLastMessage(@Param("sessionId") Integer sessionId,
                           @Param("preview") String preview,
                           @Param("time") LocalDateTime time);
 
+    int backfillFromOrders(@Param("peerRole") String peerRole);
+
     int updateTitle(@Param("sessionId") Integer sessionId,
                     @Param("title") String title,
                     @Param("contextType") String contextType,
@@ -0,0 +1,32 @@
+package com.example.mapper;
+
+import com.example.entity.ChatUnreadCounter;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface ChatUnreadCounterMapper {
+
+    int increment(@Param("sessionId") Integer sessionId,
+                  @Param("receiverRole") String receiverRole,
+                  @Param("receiverId") Integer receiverId,
+                  @Param("delta") int delta);
+
+    int reset(@Param("sessionId") Integer sessionId,
+              @Param("receiverRole") String receiverRole,
+              @Param("receiverId") Integer receiverId);
+
+    Integer findCount(@Param("sessionId") Integer sessionId,
+                      @Param("receiverRole") String receiverRole,
+                      @Param("receiverId") Integer receiverId);
+
+    List<ChatUnreadCounter> listByReceiver(@Param("receiverRole") String receiverRole,
+                                           @Param("receiverId") Integer receiverId,
+                                           @Param("sessionIds") List<Integer> sessionIds);
+
+    int rebuildFromMessages(@Param("graceSeconds") int graceSeconds);
+
+    int clearStale(@Param("graceSeconds") int graceSeconds);
+}
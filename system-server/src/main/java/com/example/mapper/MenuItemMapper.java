@@ -16,6 +16,9 @@ public interface MenuItemMapper {
 
     MenuItem findById(@Param("id") Integer id);
 
+    List<MenuItem> listByIds(@Param("restaurateurId") Integer restaurateurId,
+                             @Param("ids") List<Integer> ids);
+
     List<MenuItem> pageByRestaurateur(@Param("restaurateurId") Integer restaurateurId,
                                       @Param("keyword") String keyword,
                                       @Param("category") String category,
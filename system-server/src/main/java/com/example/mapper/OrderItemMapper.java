@@ -11,6 +11,8 @@ public interface OrderItemMapper {
 
     int insert(OrderItem item);
 
+    int insertBatch(@Param("items") List<OrderItem> items);
+
     List<OrderItem> listByOrderId(@Param("orderId") Integer orderId);
 
     int deleteByOrderId(@Param("orderId") Integer orderId);
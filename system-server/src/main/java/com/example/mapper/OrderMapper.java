@@ -1,9 +1,11 @@
 package com.example.mapper;
 
+import com.example.dto.OrderListItemDto;
 import com.example.entity.OrderInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -16,11 +18,24 @@ public interface OrderMapper {
 
     OrderInfo getById(@Param("id") Integer id);
 
-    List<OrderInfo> pageByStatus(@Param("restaurateurId") Integer restaurateurId,
-                                 @Param("status") String status,
-                                 @Param("keyword") String keyword,
-                                 @Param("offset") Integer offset,
-                                 @Param("limit") Integer limit);
+    OrderInfo findByIdempotencyKey(@Param("userId") Integer userId,
+                                   @Param("idempotencyKey") String idempotencyKey);
+
+    int insert(OrderInfo order);
+
+    List<OrderListItemDto> pageByStatus(@Param("restaurateurId") Integer restaurateurId,
+                                        @Param("status") String status,
+                                        @Param("keyword") String keyword,
+                                        @Param("offset") Integer offset,
+                                        @Param("limit") Integer limit);
+
+    List<OrderListItemDto> seekByStatus(@Param("restaurateurId") Integer restaurateurId,
+                                        @Param("status") String status,
+                                        @Param("keyword") String keyword,
+                                        @Param("cursorRank") Integer cursorRank,
+                                        @Param("cursorActivityAt") LocalDateTime cursorActivityAt,
+                                        @Param("cursorId") Integer cursorId,
+                                        @Param("limit") Integer limit);
 
     Long countByStatus(@Param("restaurateurId") Integer restaurateurId,
                        @Param("status") String status,
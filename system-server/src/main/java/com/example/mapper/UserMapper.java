@@ -1,5 +1,6 @@
 package com.example.mapper;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.apache.ibatis.annotations.Mapper;
@@ -12,9 +13,11 @@ public interface UserMapper {
     User getById(Integer id);
     User getByUsername(String username);
     List<User> getAllUsers();
+    List<User> listByIds(@Param("ids") List<Integer> ids);
     User getByUsernameAndPassword(@Param("username") String username, @Param("password") String password);
     int insertUser(User user);
     int update(User user);
+    int revokeTokens(@Param("id") Integer id, @Param("validAfter") LocalDateTime validAfter);
     int deleteById(Integer id);
     int countByRole(UserRole role);
 }
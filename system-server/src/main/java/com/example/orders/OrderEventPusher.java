@@ -0,0 +1,117 @@
+package com.example.orders;
+
+import com.example.entity.User;
+import com.example.mapper.RestaurateurMapper;
+import com.example.users.UserCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 把订单状态变化推送到商家的 /user/queue/orders。
+ * 事件先按商家暂存，同一订单在一个窗口内多次变化只保留最终状态，再由定时任务成批发出。
+ * 商家对应的用户名按 username-ttl-seconds 缓存，过期后重新查询，改名或换绑后不会一直推给旧用户名。
+ */
+@Component
+@Slf4j
+public class OrderEventPusher {
+
+    private static final String DESTINATION = "/queue/orders";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RestaurateurMapper restaurateurMapper;
+    private final UserCache userCache;
+    private final boolean enabled;
+
+    private final ConcurrentHashMap<Integer, Map<Integer, Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final Cache<Integer, String> usernames;
+
+    public OrderEventPusher(
+            SimpMessagingTemplate messagingTemplate,
+            RestaurateurMapper restaurateurMapper,
+            UserCache userCache,
+            @Value("${orders.push.enabled:true}") boolean enabled,
+            @Value("${orders.push.username-ttl-seconds:300}") long usernameTtlSeconds) {
+        this.messagingTemplate = messagingTemplate;
+        this.restaurateurMapper = restaurateurMapper;
+        this.userCache = userCache;
+        this.enabled = enabled;
+        this.usernames = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(usernameTtlSeconds, 1)))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        if (!enabled || event.restaurateurId() == null || event.orderId() == null) {
+            return;
+        }
+        pending.compute(event.restaurateurId(), (key, batch) -> {
+            Map<Integer, Map<String, Object>> orders = batch == null ? new LinkedHashMap<>() : batch;
+            Map<String, Object> previous = orders.get(event.orderId());
+            Map<String, Object> delta = new HashMap<>();
+            delta.put("orderId", event.orderId());
+            delta.put("orderNo", event.orderNo());
+            delta.put("status", event.toStatus());
+            delta.put("previousStatus", previous != null ? previous.get("previousStatus") : event.fromStatus());
+            delta.put("updatedAt", event.occurredAt());
+            orders.put(event.orderId(), delta);
+            return orders;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${orders.push.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Integer restaurateurId : new ArrayList<>(pending.keySet())) {
+            Map<Integer, Map<String, Object>> batch = pending.remove(restaurateurId);
+            if (batch == null || batch.isEmpty()) {
+                continue;
+            }
+            String username = resolveUsername(restaurateurId);
+            if (username == null) {
+                continue;
+            }
+            List<Map<String, Object>> orders = new ArrayList<>(batch.values());
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("type", "ORDER_DELTA");
+            frame.put("orders", orders);
+            try {
+                messagingTemplate.convertAndSendToUser(username, DESTINATION, frame);
+            } catch (Exception ex) {
+                log.warn("订单变更推送失败 restaurateurId={}: {}", restaurateurId, ex.getMessage());
+            }
+        }
+    }
+
+    private String resolveUsername(Integer restaurateurId) {
+        String cached = usernames.getIfPresent(restaurateurId);
+        if (cached != null) {
+            return cached;
+        }
+        Integer userId = restaurateurMapper.getUserIdByRestaurateurId(restaurateurId);
+        User user = userId == null ? null : userCache.getById(userId);
+        if (user == null || user.getUsername() == null) {
+            return null;
+        }
+        usernames.put(restaurateurId, user.getUsername());
+        return user.getUsername();
+    }
+}
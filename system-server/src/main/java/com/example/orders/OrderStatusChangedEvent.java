@@ -0,0 +1,14 @@
+package com.example.orders;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单状态流转事件，在事务提交后推送给商家端。fromStatus 为空表示新订单。
+ */
+public record OrderStatusChangedEvent(Integer orderId,
+                                      String orderNo,
+                                      Integer restaurateurId,
+                                      String fromStatus,
+                                      String toStatus,
+                                      LocalDateTime occurredAt) {
+}
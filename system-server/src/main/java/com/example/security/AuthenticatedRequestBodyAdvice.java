@@ -0,0 +1,38 @@
+package com.example.security;
+
+import com.example.common.DataRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * 把 JwtAuthInterceptor 放在请求属性上的用户挂到反序列化后的 DataRequest 上，
+ * 服务层直接从 DataRequest 取用户ID与角色。
+ */
+@ControllerAdvice
+public class AuthenticatedRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return DataRequest.class.isAssignableFrom(methodParameter.getParameterType());
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (body instanceof DataRequest request && attributes != null
+                && attributes.getAttribute(SecurityContext.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                    instanceof SecurityContext.AuthenticatedUser user) {
+            request.setPrincipal(user);
+        }
+        return body;
+    }
+}
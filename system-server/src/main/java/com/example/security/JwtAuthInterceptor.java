@@ -66,15 +66,9 @@ public class JwtAuthInterceptor implements HandlerInterceptor {
                 details.getToken()
         );
         request.setAttribute(SecurityContext.REQUEST_ATTRIBUTE, user);
-        SecurityContext.setCurrentUser(user);
         return true;
     }
 
-    @Override
-    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
-        SecurityContext.clear();
-    }
-
     private boolean shouldBypass(HttpServletRequest request) {
         if (HttpMethod.OPTIONS.matches(request.getMethod())) {
             return true;
@@ -1,5 +1,8 @@
 package com.example.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Header;
 import io.jsonwebtoken.Jws;
@@ -10,14 +13,19 @@ import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Base64;
@@ -25,6 +33,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
@@ -36,19 +45,46 @@ public class JwtUtil {
     private final String issuer;
     private final long expirationSeconds;
 
+    /**
+     * 已验签的 Token，键为 Token 的 SHA-256 摘要，每条缓存到该 Token 的 exp 为止。
+     * 同一 Token 的后续请求直接命中，不再验签与解析声明。
+     */
+    private final Cache<String, TokenDetails> verifiedTokens;
+
+    /**
+     * 按用户持久化的吊销点（由 UserCache 提供）；未装配时（如不连库的测试上下文）不做吊销检查。
+     */
+    private final Supplier<TokenRevocations> revocations;
+    private final Clock clock;
+
     private SecretKey secretKey;
 
+    @Autowired
     public JwtUtil(
             @Value("${security.jwt.secret:}") String secret,
             @Value("${security.jwt.issuer:play-system}") String issuer,
-            @Value("${security.jwt.expiration-seconds:86400}") long expirationSeconds) {
+            @Value("${security.jwt.expiration-seconds:86400}") long expirationSeconds,
+            @Value("${security.jwt.cache.maximum-size:10000}") long cacheMaximumSize,
+            ObjectProvider<TokenRevocations> revocations) {
+        this(secret, issuer, expirationSeconds, cacheMaximumSize,
+                SingletonSupplier.ofNullable(revocations::getIfAvailable), Clock.systemUTC());
+    }
+
+    public JwtUtil(String secret, String issuer, long expirationSeconds, long cacheMaximumSize,
+                   Supplier<TokenRevocations> revocations, Clock clock) {
         this.configuredSecret = secret == null ? "" : secret.trim();
         this.issuer = issuer == null || issuer.isBlank() ? "play-system" : issuer.trim();
         this.expirationSeconds = expirationSeconds > 0 ? expirationSeconds : 86400;
+        this.revocations = revocations == null ? () -> null : revocations;
+        this.clock = clock;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(Math.max(cacheMaximumSize, 0))
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     @PostConstruct
-    void init() {
+    public void init() {
         if (configuredSecret.isEmpty()) {
             byte[] random = new byte[MIN_KEY_BYTES];
             new SecureRandom().nextBytes(random);
@@ -94,7 +130,7 @@ public class JwtUtil {
         if (secretKey == null) {
             throw new IllegalStateException("JWT secret key 未初始化，请检查配置");
         }
-        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant now = clock.instant().truncatedTo(ChronoUnit.SECONDS);
         Instant expiresAt = now.plusSeconds(expirationSeconds);
 
         Map<String, Object> claims = new HashMap<>();
@@ -123,9 +159,43 @@ public class JwtUtil {
         if (token == null || token.isBlank() || secretKey == null) {
             return Optional.empty();
         }
+        String digest = digest(token);
+        TokenDetails cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && token.equals(cached.getToken())) {
+            return revoked(cached) ? Optional.empty() : Optional.of(cached);
+        }
+        Optional<TokenDetails> parsed = verify(token).filter(details -> !revoked(details));
+        // 只缓存验签通过且带过期时间的 Token；失败结果不缓存
+        parsed.filter(details -> details.getExpiresAt() != null)
+                .ifPresent(details -> verifiedTokens.put(digest, details));
+        return parsed;
+    }
+
+    /**
+     * 此刻吊销用户已签发的 Token 时应记录的吊销点，供修改密码等场景随用户持久化。
+     * iat 精确到秒，吊销点取下一整秒：同一秒内稍后签发的新 Token 也会被拒绝，调用方应让用户在此之后重新登录。
+     */
+    public Instant revocationPoint() {
+        return clock.instant().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    /**
+     * 已验签缓存只省去验签，吊销点每次都按用户查（UserCache 命中时只是一次内存读取）。
+     */
+    private boolean revoked(TokenDetails details) {
+        TokenRevocations current = revocations.get();
+        if (current == null) {
+            return false;
+        }
+        Instant validAfter = current.tokensValidAfter(details.getUserId(), details.getUsername());
+        return validAfter != null && (details.getIssuedAt() == null || details.getIssuedAt().isBefore(validAfter));
+    }
+
+    private Optional<TokenDetails> verify(String token) {
         try {
             Jws<Claims> jws = Jwts.parserBuilder()
                     .requireIssuer(issuer)
+                    .setClock(() -> Date.from(clock.instant()))
                     .setSigningKey(secretKey)
                     .build()
                     .parseClaimsJws(token);
@@ -151,6 +221,32 @@ public class JwtUtil {
         }
     }
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private final class UntilTokenExpiry implements Expiry<String, TokenDetails> {
+        @Override
+        public long expireAfterCreate(String key, TokenDetails value, long currentTime) {
+            return Math.max(Duration.between(clock.instant(), value.getExpiresAt()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenDetails value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenDetails value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
     @Getter
     public static class TokenDetails {
         private final String token;
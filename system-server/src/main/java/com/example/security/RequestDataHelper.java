@@ -10,17 +10,19 @@ public final class RequestDataHelper {
     private RequestDataHelper() {
     }
 
+    /**
+     * 返回请求数据并就地补上当前用户的身份字段；只有空数据或不可变 Map 才会新建。
+     */
     public static Map<String, Object> resolve(DataRequest request) {
-        Map<String, Object> data;
-        if (request == null || request.getData() == null) {
-            data = new HashMap<>();
-        } else {
-            data = new HashMap<>(request.getData());
+        if (request == null) {
+            return new HashMap<>();
         }
-        SecurityContext.enrich(data);
-        if (request != null) {
+        Map<String, Object> data = request.getData();
+        if (!(data instanceof HashMap)) {
+            data = data == null ? new HashMap<>() : new HashMap<>(data);
             request.setData(data);
         }
+        SecurityContext.enrich(data, request.getPrincipal());
         return data;
     }
 }
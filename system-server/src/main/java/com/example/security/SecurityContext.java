@@ -7,40 +7,21 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * 已认证用户的类型与传递约定。
+ * 用户信息只挂在请求属性与 DataRequest 上随请求传递，不放在线程上，
+ * 因此在平台线程、虚拟线程以及跨线程投递的场景下行为一致。
+ */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class SecurityContext {
 
     public static final String REQUEST_ATTRIBUTE = SecurityContext.class.getName() + ".AUTH_USER";
 
-    private static final ThreadLocal<AuthenticatedUser> CURRENT = new ThreadLocal<>();
-
-    public static void setCurrentUser(AuthenticatedUser user) {
-        if (user == null) {
-            CURRENT.remove();
-        } else {
-            CURRENT.set(user);
-        }
-    }
-
-    public static AuthenticatedUser getCurrentUser() {
-        return CURRENT.get();
-    }
-
-    public static String currentUsername() {
-        AuthenticatedUser user = CURRENT.get();
-        return user == null ? null : user.username();
-    }
-
-    public static void clear() {
-        CURRENT.remove();
-    }
-
-    public static void enrich(Map<String, Object> target) {
-        if (target == null) {
-            return;
-        }
-        AuthenticatedUser user = CURRENT.get();
-        if (user == null) {
+    /**
+     * 把身份字段写入请求数据，覆盖客户端自带的同名字段。
+     */
+    public static void enrich(Map<String, Object> target, AuthenticatedUser user) {
+        if (target == null || user == null) {
             return;
         }
         target.put("username", user.username());
@@ -62,5 +43,9 @@ public final class SecurityContext {
         public AuthenticatedUser {
             Objects.requireNonNull(username, "username");
         }
+
+        public Integer intUserId() {
+            return userId == null ? null : userId.intValue();
+        }
     }
 }
@@ -0,0 +1,16 @@
+package com.example.security;
+
+import java.time.Instant;
+
+/**
+ * 按用户查询 Token 吊销点：签发时间早于该时刻的 Token 视为已吊销。
+ * 吊销点随用户持久化，多节点与重启后一致生效。
+ */
+@FunctionalInterface
+public interface TokenRevocations {
+
+    /**
+     * 用户没有吊销记录或不存在时返回 null。
+     */
+    Instant tokensValidAfter(Long userId, String username);
+}
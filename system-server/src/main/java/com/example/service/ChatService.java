@@ -3,6 +3,10 @@ package com.example.service;
 import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.dto.ChatMessageDelivery;
+import com.example.dto.PendingChatMessage;
+import com.example.entity.OrderInfo;
+
+import java.util.List;
 
 public interface ChatService {
     Result listSessions(DataRequest request);
@@ -14,4 +18,19 @@ public interface ChatService {
     Result sendMessage(DataRequest request);
 
     ChatMessageDelivery dispatchMessage(DataRequest request);
+
+    /**
+     * 校验并组装一条待发送消息（会话不存在时会建立会话），消息本身不落库。
+     */
+    PendingChatMessage prepareMessage(DataRequest request);
+
+    /**
+     * 在一个事务内批量写入消息、未读计数与会话最后一条，按入参顺序返回推送内容。
+     */
+    List<ChatMessageDelivery> persistBatch(List<PendingChatMessage> batch);
+
+    /**
+     * 订单生命周期钩子：为订单的顾客/骑手与商家建立（或切换到）统一会话。
+     */
+    void openOrderSessions(OrderInfo order);
 }
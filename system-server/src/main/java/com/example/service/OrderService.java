@@ -6,8 +6,12 @@ import com.example.dto.OrderDetailDto;
 import com.example.dto.OrderListItemDto;
 import com.example.dto.PageResult;
 
+import java.util.Map;
+
 public interface OrderService {
 
+    Result<Map<String, Object>> createOrder(DataRequest request);
+
     Result<PageResult<OrderListItemDto>> getPendingOrders(DataRequest request);
 
     Result<PageResult<OrderListItemDto>> getOrderList(DataRequest request);
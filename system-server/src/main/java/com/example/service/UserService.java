@@ -3,6 +3,7 @@ package com.example.service;
 import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.entity.User;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
@@ -26,7 +27,7 @@ public interface UserService {
 
     Result<Map<String, Object>> uploadAvatar(DataRequest dataRequest, MultipartFile file);
 
-    Result<Map<String, Object>> getAvatar(String filename);
+    Result<Resource> getAvatar(String filename);
 
     int getTotalUserCount();
 
@@ -1,34 +1,49 @@
 package com.example.service.serviceImpl;
 
+import com.example.chat.ChatHistoryCache;
 import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.dto.ChatMessageDelivery;
 import com.example.dto.ChatMessageDto;
 import com.example.dto.ChatSessionSummary;
+import com.example.dto.PendingChatMessage;
 import com.example.entity.ChatMessage;
 import com.example.entity.ChatSession;
+import com.example.entity.ChatUnreadCounter;
 import com.example.entity.OrderInfo;
 import com.example.entity.Restaurateur;
 import com.example.entity.User;
 import com.example.mapper.ChatMessageMapper;
 import com.example.mapper.ChatSessionMapper;
+import com.example.mapper.ChatUnreadCounterMapper;
 import com.example.mapper.OrderMapper;
 import com.example.mapper.RestaurateurMapper;
 import com.example.mapper.UserMapper;
 import com.example.security.RequestDataHelper;
 import com.example.service.ChatService;
+import com.example.users.UserCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,22 +54,42 @@ public class ChatServiceImpl implements ChatService {
     private static final String ROLE_DELIVERYMAN = "DELIVERYMAN";
     private static final String ROLE_GUEST = "GUEST";
     private static final int PREVIEW_MAX = 80;
+    private static final int DEFAULT_SESSION_PAGE_SIZE = 50;
+    private static final int MAX_SESSION_PAGE_SIZE = 200;
 
     private final OrderMapper orderMapper;
     private final UserMapper userMapper;
+    private final UserCache userCache;
     private final RestaurateurMapper restaurateurMapper;
     private final ChatSessionMapper chatSessionMapper;
     private final ChatMessageMapper chatMessageMapper;
+    private final ChatUnreadCounterMapper chatUnreadCounterMapper;
+    private final ChatHistoryCache historyCache;
+
+    /** 商家ID与其用户ID的对应关系几乎不变，缓存下来让发送消息的回执路径少查库 */
+    private final Cache<Integer, Integer> restaurateurUserIds = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofMinutes(10))
+        .build();
+    private final Cache<Integer, Integer> restaurateurIdsByUser = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofMinutes(10))
+        .build();
+    /** 会话键到会话ID及其当前订单上下文，历史窗口命中时省去 ensureSession 的查库 */
+    private final Cache<String, SessionRef> sessionRefs = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofMinutes(10))
+        .build();
 
     @Override
-    public Result<List<ChatSessionSummary>> listSessions(DataRequest request) {
+    public Result<?> listSessions(DataRequest request) {
         Map<String, Object> data = safeData(request);
         String username = stringValue(data.get("username"));
         if (username == null) {
             return Result.error("username is required");
         }
 
-        User user = userMapper.getByUsername(username);
+        User user = userCache.getCurrent(request, username);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -63,82 +98,113 @@ public class ChatServiceImpl implements ChatService {
             return Result.error("user role missing");
         }
 
-        return switch (user.getRole()) {
-            case RESTAURATEUR -> Result.success(listSessionsForRestaurateur(user));
-            case GUEST -> Result.success(listSessionsForPeer(user, ROLE_GUEST));
-            case DELIVERYMAN -> Result.success(listSessionsForPeer(user, ROLE_DELIVERYMAN));
-            default -> Result.success(Collections.emptyList());
+        SessionCursor cursor;
+        try {
+            cursor = decodeSessionCursor(stringValue(data.get("cursor")));
+        } catch (IllegalArgumentException ex) {
+            return Result.error(ex.getMessage());
+        }
+        // 未携带分页参数的旧客户端仍按原样拿到全部会话的列表本身
+        boolean paged = data.containsKey("cursor") || (request != null && request.getSize() != null);
+        int size = request != null && request.getSize() != null ? Math.max(request.getSize(), 1) : DEFAULT_SESSION_PAGE_SIZE;
+        size = Math.min(size, MAX_SESSION_PAGE_SIZE);
+        // 多取的一行只用来判断是否还有下一页
+        int limit = paged ? size + 1 : Integer.MAX_VALUE;
+
+        List<ChatSession> sessions = switch (user.getRole()) {
+            case RESTAURATEUR -> listSessionsForRestaurateur(user, cursor, limit);
+            case GUEST -> chatSessionMapper.listByPeer(user.getId(), ROLE_GUEST, cursorTime(cursor), cursorId(cursor), limit);
+            case DELIVERYMAN -> chatSessionMapper.listByPeer(user.getId(), ROLE_DELIVERYMAN, cursorTime(cursor), cursorId(cursor), limit);
+            default -> Collections.emptyList();
         };
-    }
-
-    private List<ChatSessionSummary> listSessionsForRestaurateur(User user) {
-        Restaurateur restaurateur = restaurateurMapper.getByUserId(user.getId());
-        if (restaurateur == null) {
-            return Collections.emptyList();
+        if (sessions == null) {
+            sessions = Collections.emptyList();
         }
-
-        List<OrderInfo> orders = orderMapper.listByRestaurateur(restaurateur.getId());
-        if (orders != null) {
-            for (OrderInfo order : orders) {
-                if (order.getUserId() != null) {
-                    User guest = userMapper.getById(order.getUserId());
-                    if (guest != null) {
-                        ensureSession(restaurateur.getId(), order, ROLE_GUEST, guest);
-                    }
-                }
-                if (order.getDeliverymanId() != null) {
-                    User courier = userMapper.getById(order.getDeliverymanId());
-                    if (courier != null) {
-                        ensureSession(restaurateur.getId(), order, ROLE_DELIVERYMAN, courier);
-                    }
-                }
-            }
+        String nextCursor = null;
+        if (paged && sessions.size() > size) {
+            sessions = sessions.subList(0, size);
+            nextCursor = encodeSessionCursor(sessions.get(size - 1));
         }
+        List<ChatSessionSummary> summaries = sessions.isEmpty()
+            ? Collections.emptyList()
+            : mapSessionsForViewer(user.getRole().name(), user.getId(), sessions);
 
-        List<ChatSession> sessions = chatSessionMapper.listByRestaurateur(restaurateur.getId());
-        if (sessions == null || sessions.isEmpty()) {
-            return Collections.emptyList();
+        if (!paged) {
+            return Result.success(summaries);
         }
-        Integer restaurateurUserId = restaurateurMapper.getUserIdByRestaurateurId(restaurateur.getId());
-        return mapSessionsForViewer(ROLE_RESTAURATEUR, restaurateurUserId, sessions);
+        Map<String, Object> page = new HashMap<>();
+        page.put("sessions", summaries);
+        page.put("nextCursor", nextCursor);
+        return Result.success(page);
     }
 
-    private List<ChatSessionSummary> listSessionsForPeer(User user, String peerRole) {
-        List<OrderInfo> orders;
-        if (ROLE_GUEST.equals(peerRole)) {
-            orders = orderMapper.listByGuest(user.getId());
-        } else if (ROLE_DELIVERYMAN.equals(peerRole)) {
-            orders = orderMapper.listByDeliveryman(user.getId());
-        } else {
-            orders = Collections.emptyList();
-        }
-        if (orders != null) {
-            for (OrderInfo order : orders) {
-                if (order.getRestaurateurId() != null) {
-                    ensureSession(order.getRestaurateurId(), order, peerRole, user);
-                }
-            }
-        }
-
-        List<ChatSession> sessions = chatSessionMapper.listByPeer(user.getId(), peerRole);
-        if (sessions == null || sessions.isEmpty()) {
+    private List<ChatSession> listSessionsForRestaurateur(User user, SessionCursor cursor, int limit) {
+        Restaurateur restaurateur = restaurateurMapper.getByUserId(user.getId());
+        if (restaurateur == null) {
             return Collections.emptyList();
         }
-        return mapSessionsForViewer(peerRole, user.getId(), sessions);
+        return chatSessionMapper.listByRestaurateur(restaurateur.getId(), cursorTime(cursor), cursorId(cursor), limit);
     }
 
     private List<ChatSessionSummary> mapSessionsForViewer(String viewerRole, Integer receiverId, List<ChatSession> sessions) {
         Map<Integer, OrderInfo> orderCache = new HashMap<>();
         Map<Integer, User> userCache = new HashMap<>();
         Map<Integer, Integer> restaurateurUserIdCache = new HashMap<>();
+        if (ROLE_RESTAURATEUR.equals(viewerRole)) {
+            // 会话列表里的对端用户一次性批量取回，避免逐个会话回查 user 表
+            primeUsers(sessions.stream().map(ChatSession::getPeerUserId).collect(Collectors.toSet()), userCache);
+        }
+        Map<Integer, Integer> unreadBySession = loadUnreadCounts(viewerRole, receiverId, sessions);
+        // 顺序沿用 SQL 的 activity_at DESC, id DESC
         return sessions.stream()
-            .map(session -> buildSummaryForViewer(session, viewerRole, receiverId, orderCache, userCache, restaurateurUserIdCache))
+            .map(session -> buildSummaryForViewer(session, viewerRole, unreadBySession.getOrDefault(session.getId(), 0),
+                orderCache, userCache, restaurateurUserIdCache))
             .filter(Objects::nonNull)
-            .sorted(Comparator.comparing((ChatSessionSummary s) ->
-                s.getLastMessageTime() == null ? LocalDateTime.MIN : s.getLastMessageTime()).reversed())
             .collect(Collectors.toList());
     }
 
+    private String encodeSessionCursor(ChatSession last) {
+        String raw = last.getActivityAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SessionCursor decodeSessionCursor(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new SessionCursor(LocalDateTime.parse(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    private LocalDateTime cursorTime(SessionCursor cursor) {
+        return cursor == null ? null : cursor.activityAt();
+    }
+
+    private Integer cursorId(SessionCursor cursor) {
+        return cursor == null ? null : cursor.id();
+    }
+
+    private Map<Integer, Integer> loadUnreadCounts(String receiverRole, Integer receiverId, List<ChatSession> sessions) {
+        if (receiverId == null || sessions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Integer> sessionIds = sessions.stream().map(ChatSession::getId).collect(Collectors.toList());
+        List<ChatUnreadCounter> counters = chatUnreadCounterMapper.listByReceiver(receiverRole, receiverId, sessionIds);
+        if (counters == null || counters.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Integer> result = new HashMap<>();
+        for (ChatUnreadCounter counter : counters) {
+            result.put(counter.getSessionId(), counter.getUnreadCount());
+        }
+        return result;
+    }
+
     @Override
     public Result loadHistory(DataRequest request) {
         Map<String, Object> data = safeData(request);
@@ -150,27 +216,28 @@ public class ChatServiceImpl implements ChatService {
             return Result.error("缺少必要参数");
         }
 
-        User viewer = userMapper.getByUsername(username);
+        User viewer = userCache.getCurrent(request, username);
         if (viewer == null || viewer.getRole() == null) {
             return Result.error("用户不存在");
         }
 
-        ChatSession session;
+        // 订单只查一次，会话解析与返回的订单摘要共用
+        OrderInfo order = orderMapper.getById(orderId);
+        SessionRef session;
         if (ROLE_RESTAURATEUR.equals(viewer.getRole().name())) {
             if (peerId == null || peerRole == null) {
                 return Result.error("缺少对端信息");
             }
-            Restaurateur restaurateur = restaurateurMapper.getByUserId(viewer.getId());
-            if (restaurateur == null) {
+            Integer restaurateurId = restaurateurIdOfUser(viewer.getId());
+            if (restaurateurId == null) {
                 return Result.error("商家资料不完整");
             }
-            session = ensureSession(restaurateur.getId(), orderId, peerRole, peerId);
+            session = resolveSessionRef(restaurateurId, order, peerRole, userCache.getById(peerId));
         } else {
-            OrderInfo order = orderMapper.getById(orderId);
             if (order == null || order.getRestaurateurId() == null) {
                 return Result.error("订单不存在或商家缺失");
             }
-            session = ensureSession(order.getRestaurateurId(), order, viewer.getRole().name(), viewer);
+            session = resolveSessionRef(order.getRestaurateurId(), order, viewer.getRole().name(), viewer);
         }
         if (session == null) {
             return Result.error("会话不存在");
@@ -178,28 +245,38 @@ public class ChatServiceImpl implements ChatService {
 
         Integer limit = request != null && request.getSize() != null ? request.getSize() : 50;
         Integer beforeId = intValue(data.get("beforeId"));
-        List<ChatMessage> records = chatMessageMapper.listBySession(session.getId(), limit, beforeId);
-        if (records == null) {
-            records = Collections.emptyList();
-        }
+        // 打开窗口/重连只取最新一页，优先由内存窗口回答
+        List<ChatMessageDto> dtos = beforeId == null ? historyCache.recent(session.id(), limit) : null;
+        if (dtos == null) {
+            long stamp = historyCache.stamp(session.id());
+            List<ChatMessage> records = chatMessageMapper.listBySession(session.id(), limit, beforeId);
+            if (records == null) {
+                records = Collections.emptyList();
+            }
 
-        List<ChatMessageDto> dtos = records.stream()
-            .sorted(Comparator.comparing(ChatMessage::getId))
-            .map(this::mapToDto)
-            .collect(Collectors.toList());
+            dtos = records.stream()
+                .sorted(Comparator.comparing(ChatMessage::getId))
+                .map(this::mapToDto)
+                .collect(Collectors.toList());
 
-        String sessionKey = session.getSessionKey();
-        for (ChatMessageDto dto : dtos) {
-            dto.setSessionId(sessionKey);
+            String sessionKey = session.sessionKey();
+            for (ChatMessageDto dto : dtos) {
+                dto.setSessionId(sessionKey);
+            }
+            if (beforeId == null) {
+                historyCache.seed(session.id(), stamp, dtos, limit);
+            }
         }
 
         Map<String, Object> payload = new HashMap<>();
         payload.put("messages", dtos);
 
-        if (session.getOrderId() != null) {
-            OrderInfo order = orderMapper.getById(session.getOrderId());
-            if (order != null) {
-                payload.put("order", orderSummary(order));
+        if (session.orderId() != null) {
+            OrderInfo summary = order != null && session.orderId().equals(order.getId())
+                ? order
+                : orderMapper.getById(session.orderId());
+            if (summary != null) {
+                payload.put("order", orderSummary(summary));
             }
         }
 
@@ -218,7 +295,7 @@ public class ChatServiceImpl implements ChatService {
             return Result.error("缺少必要参数");
         }
 
-        User viewer = userMapper.getByUsername(username);
+        User viewer = userCache.getCurrent(request, username);
         if (viewer == null || viewer.getRole() == null) {
             return Result.error("用户不存在");
         }
@@ -233,7 +310,7 @@ public class ChatServiceImpl implements ChatService {
             if (peerId == null || peerRole == null) {
                 return Result.error("缺少对端信息");
             }
-            User peer = userMapper.getById(peerId);
+            User peer = userCache.getById(peerId);
             if (peer == null) {
                 return Result.error("对端用户不存在");
             }
@@ -248,6 +325,9 @@ public class ChatServiceImpl implements ChatService {
                 ? restaurateurMapper.getUserIdByRestaurateurId(order.getRestaurateurId())
                 : viewer.getId();
             chatMessageMapper.markRead(session.getId(), receiverRole, receiverId);
+            chatUnreadCounterMapper.reset(session.getId(), receiverRole, receiverId);
+            Integer sessionId = session.getId();
+            afterCommit(() -> historyCache.markRead(sessionId, receiverRole, receiverId));
         }
         return Result.success();
     }
@@ -270,6 +350,12 @@ public class ChatServiceImpl implements ChatService {
     }
 
     private ChatMessageDelivery doSendMessage(DataRequest request) {
+        PendingChatMessage pending = prepareMessage(request);
+        return persistBatch(List.of(pending)).get(0);
+    }
+
+    @Override
+    public PendingChatMessage prepareMessage(DataRequest request) {
         Map<String, Object> data = safeData(request);
         String clientMessageId = stringValue(data.get("clientMessageId"));
         Integer orderId = intValue(data.get("orderId"));
@@ -292,7 +378,7 @@ public class ChatServiceImpl implements ChatService {
             throw new IllegalArgumentException("请先登录");
         }
 
-        User sender = userMapper.getByUsername(username);
+        User sender = userCache.getCurrent(request, username);
         if (sender == null) {
             throw new IllegalArgumentException("发送人不存在");
         }
@@ -307,22 +393,20 @@ public class ChatServiceImpl implements ChatService {
             throw new IllegalArgumentException("无法识别发送人角色");
         }
 
-    Restaurateur restaurateur;
-    Integer restaurateurId;
-    String peerRole;
-    User peerUser;
+        Integer restaurateurId;
+        String peerRole;
+        User peerUser;
 
         if (ROLE_RESTAURATEUR.equals(senderRole)) {
-            restaurateur = restaurateurMapper.getByUserId(sender.getId());
-            if (restaurateur == null) {
+            restaurateurId = restaurateurIdOfUser(sender.getId());
+            if (restaurateurId == null) {
                 throw new IllegalArgumentException("商家账号未完成资料");
             }
-            if (!Objects.equals(order.getRestaurateurId(), restaurateur.getId())) {
+            if (!Objects.equals(order.getRestaurateurId(), restaurateurId)) {
                 throw new IllegalArgumentException("订单不属于当前商家");
             }
-            restaurateurId = restaurateur.getId();
             peerRole = receiverRole;
-            peerUser = userMapper.getById(receiverId);
+            peerUser = userCache.getById(receiverId);
             if (peerUser == null) {
                 throw new IllegalArgumentException("接收人不存在");
             }
@@ -331,24 +415,17 @@ public class ChatServiceImpl implements ChatService {
             if (restaurateurId == null) {
                 throw new IllegalArgumentException("订单缺少商家信息");
             }
-            restaurateur = restaurateurMapper.getById(restaurateurId);
-            if (restaurateur == null) {
+            if (userIdOfRestaurateur(restaurateurId) == null) {
                 throw new IllegalArgumentException("商家不存在");
             }
             peerRole = senderRole;
             peerUser = sender;
         }
 
-        ChatSession session = ensureSession(restaurateurId, order, peerRole, peerUser);
-        if (session == null) {
-            throw new IllegalArgumentException("无法创建会话");
-        }
-
         ChatMessage message = new ChatMessage();
-        message.setSessionId(session.getId());
         message.setOrderId(orderId);
-        message.setContextType(order != null ? "ORDER" : null);
-        message.setContextRef(order != null ? order.getId() : null);
+        message.setContextType("ORDER");
+        message.setContextRef(order.getId());
         message.setSenderId(sender.getId());
         message.setSenderRole(senderRole);
         message.setReceiverId(receiverId);
@@ -357,68 +434,163 @@ public class ChatServiceImpl implements ChatService {
         message.setReadFlag(Boolean.FALSE);
         message.setCreatedAt(LocalDateTime.now());
 
-        chatMessageMapper.insert(message);
+        // 未读计数与 chat_message.receiver_id 一致，商家一侧按其用户ID记
+        Integer receiverUnreadKey = ROLE_RESTAURATEUR.equals(receiverRole)
+            ? userIdOfRestaurateur(restaurateurId)
+            : receiverId;
+        User receiver = userCache.getById(receiverUnreadKey);
+
+        // 会话键由对端确定，回执无需等会话落库；会话的查找与创建交给 persistBatch
+        return PendingChatMessage.builder()
+            .message(message)
+            .sessionKey(buildSessionKey(null, peerRole, peerUser.getId()))
+            .order(order)
+            .peerRole(peerRole)
+            .peerUser(peerUser)
+            .restaurateurId(restaurateurId)
+            .clientMessageId(clientMessageId)
+            .senderUsername(sender.getUsername())
+            .receiverUnreadKey(receiverUnreadKey)
+            .receiverUsername(receiver == null ? null : receiver.getUsername())
+            .build();
+    }
 
-        String preview = shorten(content);
-        chatSessionMapper.updateLastMessage(session.getId(), preview, message.getCreatedAt());
+    @Override
+    @Transactional
+    public List<ChatMessageDelivery> persistBatch(List<PendingChatMessage> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 同一批次内同一会话只查找/创建一次；订单上下文变化时交给 ensureSession 更新标题
+        Map<String, ChatSession> sessions = new HashMap<>();
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        for (PendingChatMessage pending : batch) {
+            ChatSession session = sessions.get(pending.getSessionKey());
+            OrderInfo order = pending.getOrder();
+            if (session == null || (order != null && !Objects.equals(session.getOrderId(), order.getId()))) {
+                session = ensureSession(pending.getRestaurateurId(), order, pending.getPeerRole(), pending.getPeerUser());
+                if (session == null) {
+                    throw new IllegalStateException("无法创建会话");
+                }
+                sessions.put(pending.getSessionKey(), session);
+            }
+            pending.setSession(session);
+            pending.getMessage().setSessionId(session.getId());
+            messages.add(pending.getMessage());
+        }
+        chatMessageMapper.insertBatch(messages);
 
-        ChatMessageDto dto = mapToDto(message);
-        dto.setClientMessageId(clientMessageId);
-        dto.setSessionId(session.getSessionKey());
+        // 同一会话/接收人的计数合并成一次更新，会话最后一条只写最新的那条
+        Map<UnreadKey, Integer> increments = new LinkedHashMap<>();
+        Map<Integer, ChatMessage> latestBySession = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            increments.merge(new UnreadKey(message.getSessionId(), message.getReceiverRole(), message.getReceiverId()), 1, Integer::sum);
+            latestBySession.put(message.getSessionId(), message);
+        }
+        increments.forEach((key, delta) ->
+            chatUnreadCounterMapper.increment(key.sessionId(), key.receiverRole(), key.receiverId(), delta));
+        latestBySession.values().forEach(message ->
+            chatSessionMapper.updateLastMessage(message.getSessionId(), shorten(message.getContent()), message.getCreatedAt()));
 
         Map<Integer, OrderInfo> orderCache = new HashMap<>();
         Map<Integer, User> userCache = new HashMap<>();
         Map<Integer, Integer> restaurateurUserIdCache = new HashMap<>();
+        Map<UnreadKey, Integer> unreadCache = new HashMap<>();
+
+        List<ChatMessageDelivery> deliveries = new ArrayList<>(batch.size());
+        for (PendingChatMessage pending : batch) {
+            ChatMessage message = pending.getMessage();
+            ChatSession session = pending.getSession();
+            session.setLastMessagePreview(shorten(message.getContent()));
+            session.setLastMessageTime(message.getCreatedAt());
+
+            ChatMessageDto dto = mapToDto(message);
+            dto.setClientMessageId(pending.getClientMessageId());
+            dto.setSessionId(session.getSessionKey());
+            afterCommit(() -> historyCache.append(message.getSessionId(), dto));
+
+            UnreadKey senderKey = new UnreadKey(session.getId(), message.getSenderRole(), message.getSenderId());
+            UnreadKey receiverKey = new UnreadKey(session.getId(), message.getReceiverRole(), pending.getReceiverUnreadKey());
+
+            ChatSessionSummary senderSummary = buildSummaryForViewer(
+                session,
+                message.getSenderRole(),
+                unreadCache.computeIfAbsent(senderKey, key -> unreadCount(key.sessionId(), key.receiverRole(), key.receiverId())),
+                orderCache,
+                userCache,
+                restaurateurUserIdCache
+            );
+
+            ChatSessionSummary receiverSummary = buildSummaryForViewer(
+                session,
+                message.getReceiverRole(),
+                unreadCache.computeIfAbsent(receiverKey, key -> unreadCount(key.sessionId(), key.receiverRole(), key.receiverId())),
+                orderCache,
+                userCache,
+                restaurateurUserIdCache
+            );
+
+            deliveries.add(ChatMessageDelivery.builder()
+                .message(dto)
+                .senderSession(senderSummary)
+                .receiverSession(receiverSummary)
+                .receiverUsername(pending.getReceiverUsername())
+                .senderUsername(pending.getSenderUsername())
+                .build());
+        }
+        return deliveries;
+    }
 
-        Integer senderUnreadKey = ROLE_RESTAURATEUR.equals(senderRole) ? restaurateurId : sender.getId();
-        Integer receiverUnreadKey = ROLE_RESTAURATEUR.equals(receiverRole) ? restaurateurId : receiverId;
-
-        ChatSessionSummary senderSummary = buildSummaryForViewer(
-            session,
-            senderRole,
-            senderUnreadKey,
-            orderCache,
-            userCache,
-            restaurateurUserIdCache
-        );
-
-        ChatSessionSummary receiverSummary = buildSummaryForViewer(
-            session,
-            receiverRole,
-            receiverUnreadKey,
-            orderCache,
-            userCache,
-            restaurateurUserIdCache
-        );
-
-        Integer receiverUserId = ROLE_RESTAURATEUR.equals(receiverRole)
-            ? resolveRestaurateurUserId(restaurateurId, restaurateurUserIdCache)
-            : receiverId;
-        User receiver = resolveUser(receiverUserId, userCache);
-        String receiverUsername = receiver == null ? null : receiver.getUsername();
-
-        return ChatMessageDelivery.builder()
-            .message(dto)
-            .senderSession(senderSummary)
-            .receiverSession(receiverSummary)
-            .receiverUsername(receiverUsername)
-            .senderUsername(sender.getUsername())
-            .build();
+    @Override
+    @Transactional
+    public void openOrderSessions(OrderInfo order) {
+        if (order == null || order.getRestaurateurId() == null) {
+            return;
+        }
+        if (order.getUserId() != null) {
+            ensureSession(order.getRestaurateurId(), order, ROLE_GUEST, userCache.getById(order.getUserId()));
+        }
+        if (order.getDeliverymanId() != null) {
+            ensureSession(order.getRestaurateurId(), order, ROLE_DELIVERYMAN, userCache.getById(order.getDeliverymanId()));
+        }
     }
 
-    private ChatSession ensureSession(Integer restaurateurId, Integer orderId, String peerRole, Integer peerId) {
-        if (peerId == null) {
-            return null;
+    private int unreadCount(Integer sessionId, String receiverRole, Integer receiverId) {
+        if (receiverId == null) {
+            return 0;
         }
-        User peer = userMapper.getById(peerId);
+        Integer count = chatUnreadCounterMapper.findCount(sessionId, receiverRole, receiverId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 历史查询用的会话解析：内存窗口开启时先按会话键查引用缓存，订单上下文未变则不查库。
+     */
+    private SessionRef resolveSessionRef(Integer restaurateurId, OrderInfo order, String peerRole, User peer) {
         if (peer == null) {
             return null;
         }
-        OrderInfo order = orderId == null ? null : orderMapper.getById(orderId);
-        return ensureSession(restaurateurId, order, peerRole, peer);
+        if (historyCache.isEnabled()) {
+            SessionRef cached = sessionRefs.getIfPresent(buildSessionKey(null, peerRole, peer.getId()));
+            if (cached != null && (order == null || Objects.equals(cached.orderId(), order.getId()))) {
+                return cached;
+            }
+        }
+        ChatSession session = ensureSession(restaurateurId, order, peerRole, peer);
+        return session == null ? null : new SessionRef(session.getId(), session.getSessionKey(), session.getOrderId());
     }
 
     private ChatSession ensureSession(Integer restaurateurId, OrderInfo order, String peerRole, User peer) {
+        ChatSession session = findOrCreateSession(restaurateurId, order, peerRole, peer);
+        if (session != null && session.getId() != null) {
+            // 新建的会话随事务回滚时不能留在缓存里
+            SessionRef ref = new SessionRef(session.getId(), session.getSessionKey(), session.getOrderId());
+            afterCommit(() -> sessionRefs.put(ref.sessionKey(), ref));
+        }
+        return session;
+    }
+
+    private ChatSession findOrCreateSession(Integer restaurateurId, OrderInfo order, String peerRole, User peer) {
         if (peer == null) {
             return null;
         }
@@ -471,7 +643,35 @@ public class ChatServiceImpl implements ChatService {
         if (userId == null) {
             return null;
         }
-        return cache.computeIfAbsent(userId, id -> userMapper.getById(id));
+        return cache.computeIfAbsent(userId, userCache::getById);
+    }
+
+    private void primeUsers(Set<Integer> userIds, Map<Integer, User> cache) {
+        List<Integer> missing = userIds.stream()
+            .filter(Objects::nonNull)
+            .filter(id -> !cache.containsKey(id))
+            .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<User> users = userMapper.listByIds(missing);
+        if (users != null) {
+            for (User user : users) {
+                cache.put(user.getId(), user);
+            }
+        }
+    }
+
+    private Integer userIdOfRestaurateur(Integer restaurateurId) {
+        return restaurateurId == null ? null
+            : restaurateurUserIds.get(restaurateurId, restaurateurMapper::getUserIdByRestaurateurId);
+    }
+
+    private Integer restaurateurIdOfUser(Integer userId) {
+        return userId == null ? null : restaurateurIdsByUser.get(userId, id -> {
+            Restaurateur restaurateur = restaurateurMapper.getByUserId(id);
+            return restaurateur == null ? null : restaurateur.getId();
+        });
     }
 
     private Integer resolveRestaurateurUserId(Integer restaurateurId, Map<Integer, Integer> cache) {
@@ -483,7 +683,7 @@ public class ChatServiceImpl implements ChatService {
 
     private ChatSessionSummary buildSummaryForViewer(ChatSession session,
                                                     String viewerRole,
-                                                    Integer receiverId,
+                                                    int unread,
                                                     Map<Integer, OrderInfo> orderCache,
                                                     Map<Integer, User> userCache,
                                                     Map<Integer, Integer> restaurateurUserIdCache) {
@@ -508,7 +708,6 @@ public class ChatServiceImpl implements ChatService {
         }
 
         User counterpart = resolveUser(displayUserId, userCache);
-        Integer unread = chatMessageMapper.countUnread(session.getId(), viewerRole, receiverId);
 
         return ChatSessionSummary.builder()
             .sessionId(session.getSessionKey())
@@ -522,7 +721,7 @@ public class ChatServiceImpl implements ChatService {
             .orderRemark(order == null ? null : order.getRemark())
             .lastMessage(preview)
             .lastMessageTime(time)
-            .unreadCount(unread == null ? 0 : unread)
+            .unreadCount(unread)
             .build();
     }
 
@@ -550,6 +749,31 @@ public class ChatServiceImpl implements ChatService {
             .build();
     }
 
+    /**
+     * 内存窗口只反映已提交的数据；无事务时立即执行。
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record SessionCursor(LocalDateTime activityAt, Integer id) {
+    }
+
+    private record SessionRef(Integer id, String sessionKey, Integer orderId) {
+    }
+
+    private record UnreadKey(Integer sessionId, String receiverRole, Integer receiverId) {
+    }
+
     private Map<String, Object> safeData(DataRequest request) {
         return RequestDataHelper.resolve(request);
     }
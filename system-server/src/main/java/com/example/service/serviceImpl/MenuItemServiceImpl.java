@@ -8,6 +8,7 @@ import com.example.entity.MenuItem;
 import com.example.mapper.MenuItemMapper;
 import com.example.security.RequestDataHelper;
 import com.example.service.MenuItemService;
+import com.example.stats.RestaurateurStatsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
@@ -35,6 +36,7 @@ import java.util.stream.Collectors;
 public class MenuItemServiceImpl implements MenuItemService {
 
     private final MenuItemMapper menuItemMapper;
+    private final RestaurateurStatsCache statsCache;
 
     private static final String UPLOAD_DIR = "uploads/dishes";
     private static final Path UPLOAD_ROOT = Paths.get(System.getProperty("user.dir"), "uploads", "dishes");
@@ -122,6 +124,7 @@ public class MenuItemServiceImpl implements MenuItemService {
         item.setCreatedAt(LocalDateTime.now());
         item.setUpdatedAt(item.getCreatedAt());
         menuItemMapper.insert(item);
+        statsCache.evict(restaurateurId);
         return Result.success("created", item.getId());
     }
 
@@ -180,9 +183,8 @@ public class MenuItemServiceImpl implements MenuItemService {
             return Result.error("menu item not found");
         }
 
-        target.setDeleted(Boolean.TRUE);
-        target.setUpdatedAt(LocalDateTime.now());
-        menuItemMapper.update(target);
+        menuItemMapper.softDelete(id, restaurateurId);
+        statsCache.evict(restaurateurId);
         removeImageFile(target.getImageUrl());
         return Result.success("deleted");
     }
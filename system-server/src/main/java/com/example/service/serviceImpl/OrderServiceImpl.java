@@ -6,30 +6,132 @@ import com.example.dto.OrderDetailDto;
 import com.example.dto.OrderItemDto;
 import com.example.dto.OrderListItemDto;
 import com.example.dto.PageResult;
+import com.example.entity.MenuItem;
 import com.example.entity.OrderInfo;
 import com.example.entity.OrderItem;
+import com.example.entity.Restaurant;
 import com.example.entity.User;
+import com.example.entity.UserRole;
+import com.example.mapper.MenuItemMapper;
 import com.example.mapper.OrderItemMapper;
 import com.example.mapper.OrderMapper;
-import com.example.mapper.UserMapper;
+import com.example.mapper.RestaurantMapper;
+import com.example.orders.OrderStatusChangedEvent;
 import com.example.security.RequestDataHelper;
+import com.example.security.SecurityContext;
+import com.example.service.ChatService;
 import com.example.service.OrderService;
+import com.example.stats.DailyStatsRollup;
+import com.example.stats.RestaurateurStatsCache;
+import com.example.users.UserCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    /** 订单号撞上唯一索引时最多尝试的次数 */
+    private static final int ORDER_NO_ATTEMPTS = 3;
+
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
-    private final UserMapper userMapper;
+    private final MenuItemMapper menuItemMapper;
+    private final RestaurantMapper restaurantMapper;
+    private final UserCache userCache;
+    private final ChatService chatService;
+    private final DailyStatsRollup dailyStatsRollup;
+    private final RestaurateurStatsCache statsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 顾客下单。客户端重试时携带同一个 idempotencyKey，命中已有订单则直接回放结果，不会重复落单。
+     * 只有 GUEST 可以下单；餐厅由商家推导，客户端带了 restaurantId 时必须与之一致。
+     */
+    @Override
+    public Result<Map<String, Object>> createOrder(DataRequest request) {
+        SecurityContext.AuthenticatedUser principal = request == null ? null : request.getPrincipal();
+        // 下单人只认 Token 中的用户；请求体里带了别人的 userId 直接拒绝
+        Integer userId = principal == null ? null : principal.intUserId();
+        if (userId == null) {
+            return Result.error("login required");
+        }
+        if (!UserRole.GUEST.name().equalsIgnoreCase(principal.role())) {
+            return Result.error("only guests can place orders");
+        }
+        Integer claimedUserId = request.getData() == null ? null : getIntValue(request.getData(), "userId");
+        if (claimedUserId != null && !claimedUserId.equals(userId)) {
+            return Result.error("userId does not match the logged-in user");
+        }
+
+        Map<String, Object> data = safeData(request);
+        Integer restaurateurId = getIntValue(data, "restaurateurId");
+        if (restaurateurId == null) {
+            return Result.error("restaurateurId is required");
+        }
+        Restaurant restaurant = restaurantMapper.getByRestaurateurId(restaurateurId);
+        Integer claimedRestaurantId = getIntValue(data, "restaurantId");
+        if (claimedRestaurantId != null && (restaurant == null || !claimedRestaurantId.equals(restaurant.getId()))) {
+            return Result.error("restaurantId does not belong to restaurateur");
+        }
+        Integer restaurantId = restaurant == null ? null : restaurant.getId();
+        String idempotencyKey = trimToNull(data.get("idempotencyKey"));
+        if (idempotencyKey != null && idempotencyKey.length() > 64) {
+            return Result.error("idempotencyKey is too long");
+        }
+
+        if (idempotencyKey != null) {
+            OrderInfo existing = orderMapper.findByIdempotencyKey(userId, idempotencyKey);
+            if (existing != null) {
+                return replayOrder(existing, restaurateurId);
+            }
+        }
+
+        List<OrderLine> lines;
+        try {
+            lines = parseOrderLines(data.get("items"));
+        } catch (IllegalArgumentException ex) {
+            return Result.error(ex.getMessage());
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                OrderInfo order = transactionTemplate.execute(status ->
+                    placeOrderInternal(userId, restaurateurId, restaurantId, data, idempotencyKey, lines));
+                return Result.success("created", toCreateResult(order, false));
+            } catch (DuplicateKeyException ex) {
+                // 并发的重复提交输给了先到的那一次，唯一索引兜底后回放先到的订单
+                OrderInfo existing = idempotencyKey == null ? null : orderMapper.findByIdempotencyKey(userId, idempotencyKey);
+                if (existing != null) {
+                    return replayOrder(existing, restaurateurId);
+                }
+                // 否则是订单号撞车，整单回滚后换一个订单号重试
+                if (attempt >= ORDER_NO_ATTEMPTS) {
+                    return Result.error("failed to allocate order number, please retry");
+                }
+            } catch (IllegalArgumentException | IllegalStateException ex) {
+                return Result.error(ex.getMessage());
+            }
+        }
+    }
 
     @Override
     public Result<PageResult<OrderListItemDto>> getPendingOrders(DataRequest request) {
@@ -60,6 +162,16 @@ public class OrderServiceImpl implements OrderService {
         int page = request != null && request.getPage() != null ? request.getPage() : 1;
         int size = request != null && request.getSize() != null ? request.getSize() : 10;
 
+        // 携带 cursor 字段（首屏可传空串）即切换为游标分页
+        if (data.containsKey("cursor")) {
+            try {
+                OrderCursor cursor = decodeCursor(trimToNull(data.get("cursor")));
+                return Result.success(seekByStatus(restaurateurId, status, keyword, cursor, size));
+            } catch (IllegalArgumentException ex) {
+                return Result.error(ex.getMessage());
+            }
+        }
+
         PageResult<OrderListItemDto> result = pageByStatus(restaurateurId, status, keyword, page, size);
         return Result.success(result);
     }
@@ -158,10 +270,56 @@ public class OrderServiceImpl implements OrderService {
         String normalizedKeyword = trimToNull(keyword);
         String normalizedStatus = trimToNull(status);
 
-        List<OrderInfo> orders = orderMapper.pageByStatus(restaurateurId, normalizedStatus, normalizedKeyword, offset, pageSize);
+        List<OrderListItemDto> records = orderMapper.pageByStatus(restaurateurId, normalizedStatus, normalizedKeyword, offset, pageSize);
         Long total = orderMapper.countByStatus(restaurateurId, normalizedStatus, normalizedKeyword);
-        List<OrderListItemDto> records = orders.stream().map(this::toListItem).collect(Collectors.toList());
-        return new PageResult<>(total, records);
+        return new PageResult<>(total, records == null ? Collections.emptyList() : records);
+    }
+
+    private PageResult<OrderListItemDto> seekByStatus(Integer restaurateurId, String status, String keyword,
+                                                      OrderCursor cursor, int size) {
+        int pageSize = Math.max(size, 1);
+        String normalizedKeyword = trimToNull(keyword);
+        String normalizedStatus = trimToNull(status);
+
+        // 多取一行用于判断是否还有下一页
+        List<OrderListItemDto> rows = orderMapper.seekByStatus(restaurateurId, normalizedStatus, normalizedKeyword,
+            cursor == null ? null : cursor.rank(),
+            cursor == null ? null : cursor.activityAt(),
+            cursor == null ? null : cursor.id(),
+            pageSize + 1);
+        if (rows == null) {
+            rows = Collections.emptyList();
+        }
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(rows.get(pageSize - 1));
+        }
+        // 总数只在首屏统计，续页沿用客户端首屏拿到的值，避免每页都做一次全量 COUNT
+        long total = cursor == null
+            ? orderMapper.countByStatus(restaurateurId, normalizedStatus, normalizedKeyword)
+            : PageResult.TOTAL_UNKNOWN;
+        PageResult<OrderListItemDto> result = new PageResult<>(total, rows);
+        result.setNextCursor(nextCursor);
+        return result;
+    }
+
+    private String encodeCursor(OrderListItemDto last) {
+        String raw = last.getStatusRank() + "|" + last.getActivityAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private OrderCursor decodeCursor(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new OrderCursor(Integer.parseInt(parts[0]), LocalDateTime.parse(parts[1]), Integer.parseInt(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
     }
 
     private OrderDetailDto getDetail(Integer orderId, Integer restaurateurId) {
@@ -186,7 +344,7 @@ public class OrderServiceImpl implements OrderService {
         dto.setUpdatedAt(order.getUpdatedAt());
 
         if (order.getUserId() != null) {
-            User user = userMapper.getById(order.getUserId());
+            User user = userCache.getById(order.getUserId());
             if (user != null) {
                 dto.setCustomerName(user.getNickname() != null ? user.getNickname() : user.getUsername());
                 dto.setCustomerPhone(user.getPhone());
@@ -209,12 +367,113 @@ public class OrderServiceImpl implements OrderService {
         return dto;
     }
 
+    private OrderInfo placeOrderInternal(Integer userId, Integer restaurateurId, Integer restaurantId,
+                                         Map<String, Object> data, String idempotencyKey, List<OrderLine> lines) {
+        List<Integer> dishIds = lines.stream().map(OrderLine::dishId).distinct().collect(Collectors.toList());
+        Map<Integer, MenuItem> dishes = menuItemMapper.listByIds(restaurateurId, dishIds).stream()
+            .collect(Collectors.toMap(MenuItem::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal total = BigDecimal.ZERO;
+        List<OrderItem> items = new ArrayList<>(lines.size());
+        for (OrderLine line : lines) {
+            MenuItem dish = dishes.get(line.dishId());
+            if (dish == null) {
+                throw new IllegalArgumentException("dish not found: " + line.dishId());
+            }
+            if (!"ON_SHELF".equals(dish.getStatus())) {
+                throw new IllegalStateException("dish is off shelf: " + dish.getName());
+            }
+            // 以菜单价为准；客户端带了价格且与当前价不一致时拒绝，避免按过期价格成交
+            if (line.unitPrice() != null && line.unitPrice().compareTo(dish.getPrice()) != 0) {
+                throw new IllegalStateException("price changed: " + dish.getName());
+            }
+            OrderItem item = new OrderItem();
+            item.setDishId(dish.getId());
+            item.setDishName(dish.getName());
+            item.setDishImage(dish.getImageUrl());
+            item.setUnitPrice(dish.getPrice());
+            item.setQuantity(line.quantity());
+            items.add(item);
+            total = total.add(dish.getPrice().multiply(BigDecimal.valueOf(line.quantity())));
+        }
+
+        OrderInfo order = new OrderInfo();
+        order.setOrderNo("OD" + System.currentTimeMillis() + ThreadLocalRandom.current().nextInt(100, 1000));
+        order.setUserId(userId);
+        order.setRestaurateurId(restaurateurId);
+        order.setRestaurantId(restaurantId);
+        order.setStatus("PENDING");
+        order.setRemark(trimToNull(data.get("remark")));
+        order.setDeliveryAddress(trimToNull(data.get("deliveryAddress")));
+        order.setTotalAmount(total);
+        order.setIdempotencyKey(idempotencyKey);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        orderMapper.insert(order);
+
+        items.forEach(item -> item.setOrderId(order.getId()));
+        orderItemMapper.insertBatch(items);
+
+        dailyStatsRollup.recordOrderPlaced(order.getId());
+        statsCache.evict(restaurateurId);
+        publishStatusChange(order, null, "PENDING");
+        return order;
+    }
+
+    private List<OrderLine> parseOrderLines(Object raw) {
+        if (!(raw instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("items is required");
+        }
+        // 同一菜品多行时合并数量，保证明细与校验都按菜品唯一
+        Map<Integer, OrderLine> merged = new LinkedHashMap<>();
+        for (Object element : list) {
+            if (!(element instanceof Map<?, ?> entry)) {
+                throw new IllegalArgumentException("invalid item");
+            }
+            Map<String, Object> fields = new HashMap<>();
+            entry.forEach((key, value) -> fields.put(String.valueOf(key), value));
+            Integer dishId = getIntValue(fields, "dishId");
+            Integer quantity = getIntValue(fields, "quantity");
+            if (dishId == null || quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("dishId and positive quantity are required");
+            }
+            BigDecimal unitPrice = toDecimal(fields.get("unitPrice"));
+            merged.merge(dishId, new OrderLine(dishId, quantity, unitPrice),
+                (left, right) -> new OrderLine(dishId, left.quantity() + right.quantity(),
+                    left.unitPrice() != null ? left.unitPrice() : right.unitPrice()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private Result<Map<String, Object>> replayOrder(OrderInfo existing, Integer restaurateurId) {
+        if (!restaurateurId.equals(existing.getRestaurateurId())) {
+            return Result.error("idempotencyKey already used for another order");
+        }
+        return Result.success("replayed", toCreateResult(existing, true));
+    }
+
+    private Map<String, Object> toCreateResult(OrderInfo order, boolean replayed) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("orderId", order.getId());
+        result.put("orderNo", order.getOrderNo());
+        result.put("status", order.getStatus());
+        result.put("totalAmount", order.getTotalAmount());
+        result.put("createdAt", order.getCreatedAt());
+        result.put("replayed", replayed);
+        return result;
+    }
+
     private void acceptOrderInternal(Integer orderId, Integer restaurateurId) {
-        validateOrderOwnership(orderId, restaurateurId);
+        OrderInfo order = validateOrderOwnership(orderId, restaurateurId);
         int updated = orderMapper.updateStatus(orderId, "PENDING", "PROCESSING");
         if (updated == 0) {
             throw new IllegalStateException("order is not pending");
         }
+        statsCache.evict(restaurateurId);
+        publishStatusChange(order, "PENDING", "PROCESSING");
+        // 接单即建立顾客与商家的会话，会话列表不再需要逐单补建
+        chatService.openOrderSessions(order);
     }
 
     private void startCookingInternal(Integer orderId, Integer restaurateurId) {
@@ -226,21 +485,35 @@ public class OrderServiceImpl implements OrderService {
     }
 
     private void markReadyInternal(Integer orderId, Integer restaurateurId) {
-        validateOrderOwnership(orderId, restaurateurId);
+        OrderInfo order = validateOrderOwnership(orderId, restaurateurId);
         int updated = orderMapper.updateStatus(orderId, "PROCESSING", "READY");
         if (updated == 0) {
             throw new IllegalStateException("order is not PROCESSING");
         }
+        statsCache.evict(restaurateurId);
+        publishStatusChange(order, "PROCESSING", "READY");
     }
 
     private void completeOrderInternal(Integer orderId) {
+        OrderInfo order = orderMapper.getById(orderId);
+        if (order == null) {
+            throw new IllegalArgumentException("order not found");
+        }
         int updated = orderMapper.updateStatus(orderId, "READY", "COMPLETED");
         if (updated == 0) {
             throw new IllegalStateException("order is not READY");
         }
+        dailyStatsRollup.recordOrderCompleted(orderId);
+        statsCache.evict(order.getRestaurateurId());
+        publishStatusChange(order, "READY", "COMPLETED");
     }
 
-    private void validateOrderOwnership(Integer orderId, Integer restaurateurId) {
+    private void publishStatusChange(OrderInfo order, String fromStatus, String toStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), order.getOrderNo(),
+            order.getRestaurateurId(), fromStatus, toStatus, LocalDateTime.now()));
+    }
+
+    private OrderInfo validateOrderOwnership(Integer orderId, Integer restaurateurId) {
         if (orderId == null || restaurateurId == null) {
             throw new IllegalArgumentException("orderId and restaurateurId are required");
         }
@@ -251,27 +524,24 @@ public class OrderServiceImpl implements OrderService {
         if (!restaurateurId.equals(order.getRestaurateurId())) {
             throw new IllegalArgumentException("forbidden");
         }
+        return order;
     }
 
-    private OrderListItemDto toListItem(OrderInfo order) {
-        if (order == null) {
+    private record OrderCursor(Integer rank, LocalDateTime activityAt, Integer id) {
+    }
+
+    private record OrderLine(Integer dishId, int quantity, BigDecimal unitPrice) {
+    }
+
+    private BigDecimal toDecimal(Object value) {
+        if (value == null) {
             return null;
         }
-        OrderListItemDto dto = new OrderListItemDto();
-        dto.setId(order.getId());
-        dto.setOrderNo(order.getOrderNo());
-        dto.setStatus(order.getStatus());
-        dto.setDeliveryAddress(order.getDeliveryAddress());
-        dto.setTotalAmount(order.getTotalAmount());
-        dto.setCreatedAt(order.getCreatedAt());
-
-        if (order.getUserId() != null) {
-            User user = userMapper.getById(order.getUserId());
-            if (user != null) {
-                dto.setCustomerName(user.getNickname() != null ? user.getNickname() : user.getUsername());
-            }
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid unitPrice");
         }
-        return dto;
     }
 
     private Map<String, Object> safeData(DataRequest request) {
@@ -11,9 +11,9 @@ import com.example.mapper.RestaurantMapper;
 import com.example.mapper.RestaurantReviewLikeMapper;
 import com.example.mapper.RestaurantReviewMapper;
 import com.example.mapper.RestaurateurMapper;
-import com.example.mapper.UserMapper;
 import com.example.security.RequestDataHelper;
 import com.example.service.RestaurantService;
+import com.example.users.UserCache;
 import com.example.util.FileUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -41,7 +41,7 @@ public class RestaurantServiceImpl implements RestaurantService {
 
     private final RestaurantMapper restaurantMapper;
     private final RestaurateurMapper restaurateurMapper;
-    private final UserMapper userMapper;
+    private final UserCache userCache;
     private final RestaurantReviewMapper restaurantReviewMapper;
     private final RestaurantReviewLikeMapper restaurantReviewLikeMapper;
 
@@ -111,7 +111,7 @@ public class RestaurantServiceImpl implements RestaurantService {
             return Result.error("missing username");
         }
 
-        User user = findUserByUsername(username);
+        User user = userCache.getCurrent(request, username);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -168,7 +168,7 @@ public class RestaurantServiceImpl implements RestaurantService {
             return Result.error(String.join("; ", validation.errors));
         }
 
-        User user = findUserByUsername(username);
+        User user = userCache.getCurrent(request, username);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -313,7 +313,7 @@ public class RestaurantServiceImpl implements RestaurantService {
         review.setRestaurant(new Restaurant());
         review.getRestaurant().setId(restaurantId);
 
-        User author = userMapper.getById(userId);
+        User author = userCache.getById(userId);
         if (author == null) {
             return Result.error("user not found");
         }
@@ -529,7 +529,7 @@ public class RestaurantServiceImpl implements RestaurantService {
         if (username == null || username.trim().isEmpty()) {
             return null;
         }
-        return userMapper.getByUsername(username.trim());
+        return userCache.getByUsername(username.trim());
     }
 
     private Integer intValue(Object value) {
@@ -3,13 +3,16 @@ package com.example.service.serviceImpl;
 import com.example.common.DataRequest;
 import com.example.common.Result;
 import com.example.service.RestaurateurStatsService;
+import com.example.stats.RestaurateurStatsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 
 @Service
@@ -17,6 +20,7 @@ import java.util.*;
 public class RestaurateurStatsServiceImpl implements RestaurateurStatsService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final RestaurateurStatsCache statsCache;
 
     @Override
     public Result getStats(DataRequest request) {
@@ -28,60 +32,51 @@ public class RestaurateurStatsServiceImpl implements RestaurateurStatsService {
                 return Result.error("餐厅ID不能为空");
             }
 
-            // 查询总收入
-            Double totalIncome = jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(total_amount), 0) FROM order_info " +
-                "WHERE restaurateur_id = ? AND status = 'COMPLETED'",
-                Double.class, restaurateurId
-            );
-
-            // 查询待处理订单数
-            Integer pendingOrders = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM order_info WHERE restaurateur_id = ? AND status = 'PENDING'",
-                Integer.class, restaurateurId
-            );
-
-            // 查询今日订单数
-            LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-            Integer todayOrders = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM order_info WHERE restaurateur_id = ? AND created_at >= ?",
-                Integer.class, restaurateurId, todayStart
-            );
-
-            // 查询昨日订单数计算增长率
-            LocalDateTime yesterdayStart = LocalDate.now().minusDays(1).atStartOfDay();
-            Integer yesterdayOrders = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM order_info WHERE restaurateur_id = ? " +
-                "AND created_at >= ? AND created_at < ?",
-                Integer.class, restaurateurId, yesterdayStart, todayStart
-            );
-            
-            int growth = 0;
-            if (yesterdayOrders > 0) {
-                growth = (int) (((double)(todayOrders - yesterdayOrders) / yesterdayOrders) * 100);
-            } else if (todayOrders > 0) {
-                growth = 100;
-            }
-
-            // 查询菜品数量
-            Integer dishCount = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM menu_item WHERE restaurateur_id = ? AND is_deleted = 0",
-                Integer.class, restaurateurId
-            );
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalIncome", totalIncome != null ? totalIncome : 0.0);
-            stats.put("pendingOrders", pendingOrders != null ? pendingOrders : 0);
-            stats.put("todayOrders", todayOrders != null ? todayOrders : 0);
-            stats.put("todayOrdersGrowth", growth);
-            stats.put("dishCount", dishCount != null ? dishCount : 0);
-
-            return Result.success(stats);
+            return Result.success(statsCache.get(restaurateurId, () -> loadStats(restaurateurId)));
         } catch (Exception e) {
             return Result.error("查询统计数据失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 一次扫描商家订单，用条件聚合同时算出收入、待处理与今/昨日订单数，菜品数以子查询带出。
+     */
+    private Map<String, Object> loadStats(Integer restaurateurId) {
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        LocalDateTime yesterdayStart = todayStart.minusDays(1);
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+            "SELECT " +
+            "  COALESCE(SUM(CASE WHEN status = 'COMPLETED' THEN total_amount ELSE 0 END), 0) AS total_income, " +
+            "  COALESCE(SUM(CASE WHEN status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pending_orders, " +
+            "  COALESCE(SUM(CASE WHEN created_at >= ? THEN 1 ELSE 0 END), 0) AS today_orders, " +
+            "  COALESCE(SUM(CASE WHEN created_at >= ? AND created_at < ? THEN 1 ELSE 0 END), 0) AS yesterday_orders, " +
+            "  (SELECT COUNT(*) FROM menu_item WHERE restaurateur_id = ? AND is_deleted = 0) AS dish_count " +
+            "FROM order_info WHERE restaurateur_id = ?",
+            todayStart, yesterdayStart, todayStart, restaurateurId, restaurateurId
+        );
+
+        double totalIncome = ((Number) row.get("total_income")).doubleValue();
+        int pendingOrders = ((Number) row.get("pending_orders")).intValue();
+        int todayOrders = ((Number) row.get("today_orders")).intValue();
+        int yesterdayOrders = ((Number) row.get("yesterday_orders")).intValue();
+        int dishCount = ((Number) row.get("dish_count")).intValue();
+
+        int growth = 0;
+        if (yesterdayOrders > 0) {
+            growth = (int) (((double) (todayOrders - yesterdayOrders) / yesterdayOrders) * 100);
+        } else if (todayOrders > 0) {
+            growth = 100;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalIncome", totalIncome);
+        stats.put("pendingOrders", pendingOrders);
+        stats.put("todayOrders", todayOrders);
+        stats.put("todayOrdersGrowth", growth);
+        stats.put("dishCount", dishCount);
+        return stats;
+    }
+
     @Override
     public Result getMetrics(DataRequest request) {
         try {
@@ -99,46 +94,43 @@ public class RestaurateurStatsServiceImpl implements RestaurateurStatsService {
             LocalDateTime fromDate = from != null ? LocalDate.parse(from).atStartOfDay() : LocalDate.now().minusDays(6).atStartOfDay();
             LocalDateTime toDate = to != null ? LocalDate.parse(to).atTime(23, 59, 59) : LocalDateTime.now();
 
-            // 查询时序数据
-            List<Map<String, Object>> timeSeriesData = new ArrayList<>();
+            // 一次区间扫描取出日汇总，缺失的日期补零后再按粒度归并
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+            LocalDate startDay = fromDate.toLocalDate();
+            LocalDate endDay = toDate.toLocalDate();
+            Map<LocalDate, Map<String, Object>> daily = new HashMap<>();
+            jdbcTemplate.query(
+                "SELECT stat_date, income, order_count, dish_count FROM restaurateur_daily_stats " +
+                "WHERE restaurateur_id = ? AND stat_date >= ? AND stat_date <= ?",
+                rs -> {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("income", rs.getDouble("income"));
+                    row.put("orders", rs.getInt("order_count"));
+                    row.put("dishes", rs.getInt("dish_count"));
+                    daily.put(rs.getObject("stat_date", LocalDate.class), row);
+                },
+                restaurateurId, startDay, endDay
+            );
 
-            long daysBetween = java.time.Duration.between(fromDate, toDate).toDays() + 1;
-            for (int i = 0; i < daysBetween; i++) {
-                LocalDate date = fromDate.toLocalDate().plusDays(i);
-                LocalDateTime dayStart = date.atStartOfDay();
-                LocalDateTime dayEnd = date.atTime(23, 59, 59);
-
-                // 查询当日收入
-                Double income = jdbcTemplate.queryForObject(
-                    "SELECT COALESCE(SUM(total_amount), 0) FROM order_info " +
-                    "WHERE restaurateur_id = ? AND status = 'COMPLETED' " +
-                    "AND created_at >= ? AND created_at <= ?",
-                    Double.class, restaurateurId, dayStart, dayEnd
-                );
-
-                // 查询当日订单数
-                Integer orders = jdbcTemplate.queryForObject(
-                    "SELECT COUNT(*) FROM order_info " +
-                    "WHERE restaurateur_id = ? AND created_at >= ? AND created_at <= ?",
-                    Integer.class, restaurateurId, dayStart, dayEnd
-                );
-
-                // 查询当日菜品销量
-                Integer dishes = jdbcTemplate.queryForObject(
-                    "SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi " +
-                    "JOIN order_info o ON oi.order_id = o.id " +
-                    "WHERE o.restaurateur_id = ? AND o.created_at >= ? AND o.created_at <= ?",
-                    Integer.class, restaurateurId, dayStart, dayEnd
-                );
-
-                Map<String, Object> dataPoint = new HashMap<>();
-                dataPoint.put("date", date.format(formatter));
-                dataPoint.put("income", income != null ? income : 0.0);
-                dataPoint.put("orders", orders != null ? orders : 0);
-                dataPoint.put("dishes", dishes != null ? dishes : 0);
-                timeSeriesData.add(dataPoint);
+            Map<String, Map<String, Object>> buckets = new LinkedHashMap<>();
+            for (LocalDate date = startDay; !date.isAfter(endDay); date = date.plusDays(1)) {
+                String label = bucketLabel(date, startDay, granularity, formatter);
+                Map<String, Object> bucket = buckets.computeIfAbsent(label, key -> {
+                    Map<String, Object> point = new HashMap<>();
+                    point.put("date", key);
+                    point.put("income", 0.0);
+                    point.put("orders", 0);
+                    point.put("dishes", 0);
+                    return point;
+                });
+                Map<String, Object> row = daily.get(date);
+                if (row != null) {
+                    bucket.put("income", (Double) bucket.get("income") + (Double) row.get("income"));
+                    bucket.put("orders", (Integer) bucket.get("orders") + (Integer) row.get("orders"));
+                    bucket.put("dishes", (Integer) bucket.get("dishes") + (Integer) row.get("dishes"));
+                }
             }
+            List<Map<String, Object>> timeSeriesData = new ArrayList<>(buckets.values());
 
             Map<String, Object> result = new HashMap<>();
             result.put("timeSeries", timeSeriesData);
@@ -184,6 +176,22 @@ public class RestaurateurStatsServiceImpl implements RestaurateurStatsService {
         }
     }
 
+    /**
+     * day 按日；week 以周一为起点（首个桶从区间起始日算起）；month 标注为 yyyy-MM。
+     */
+    private String bucketLabel(LocalDate date, LocalDate rangeStart, String granularity, DateTimeFormatter formatter) {
+        switch (granularity.toLowerCase()) {
+            case "week": {
+                LocalDate weekStart = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                return (weekStart.isBefore(rangeStart) ? rangeStart : weekStart).format(formatter);
+            }
+            case "month":
+                return date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+            default:
+                return date.format(formatter);
+        }
+    }
+
     private Integer getIntValue(Map<String, Object> data, String key) {
         Object value = data.get(key);
         if (value == null) {
@@ -14,8 +14,11 @@ import com.example.mapper.UserMapper;
 import com.example.security.RequestDataHelper;
 import com.example.security.JwtUtil;
 import com.example.service.UserService;
+import com.example.users.UserCache;
 import com.example.util.FileUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,8 +27,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +48,7 @@ public class UserServiceImpl implements UserService {
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w.+-]+@[\\w.-]+\\.[A-Za-z]{2,}$");
 
     private final UserMapper userMapper;
+    private final UserCache userCache;
     private final RestaurateurMapper restaurateurMapper;
     private final DeliverymanMapper deliverymanMapper;
     private final RestaurantMapper restaurantMapper;
@@ -159,7 +164,7 @@ public class UserServiceImpl implements UserService {
         if (id == null) {
             return Result.error("id is required");
         }
-        User user = userMapper.getById(id);
+        User user = userCache.getById(id);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -174,7 +179,7 @@ public class UserServiceImpl implements UserService {
         if (username == null) {
             return Result.error("username is required");
         }
-        User user = userMapper.getByUsername(username);
+        User user = userCache.getCurrent(dataRequest, username);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -205,7 +210,7 @@ public class UserServiceImpl implements UserService {
         if (username == null) {
             return Result.error("username is required");
         }
-        User user = userMapper.getByUsername(username);
+        User user = userCache.getCurrent(dataRequest, username);
         if (user == null) {
             return Result.error("user not found");
         }
@@ -240,6 +245,7 @@ public class UserServiceImpl implements UserService {
         }
 
         int rows = userMapper.update(user);
+        userCache.evict(user.getId(), username);
         if (rows <= 0) {
             return Result.error("update failed");
         }
@@ -271,6 +277,11 @@ public class UserServiceImpl implements UserService {
         }
         user.setPassword(newPassword);
         int rows = userMapper.update(user);
+        if (rows > 0) {
+            // 吊销点随用户持久化，各节点经 UserCache 读取，重启后依然有效
+            userMapper.revokeTokens(user.getId(), LocalDateTime.ofInstant(jwtUtil.revocationPoint(), ZoneId.systemDefault()));
+        }
+        userCache.evict(user.getId(), username);
         if (rows <= 0) {
             return Result.error("change password failed");
         }
@@ -300,7 +311,9 @@ public class UserServiceImpl implements UserService {
             payload.put("url", "/api/user/avatar/" + filename);
             Map<String, Object> data = safeData(request);
             if (data.containsKey("username")) {
-                payload.put("username", stringValue(data.get("username")));
+                String username = stringValue(data.get("username"));
+                payload.put("username", username);
+                userCache.evict(null, username);
             }
             return Result.success("upload success", payload);
         } catch (IOException ex) {
@@ -308,32 +321,20 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    /**
+     * 只定位文件，不读入内存；内容由控制器以 Resource 形式直接从磁盘写出。
+     */
     @Override
-    public Result<Map<String, Object>> getAvatar(String filename) {
+    public Result<Resource> getAvatar(String filename) {
         if (filename == null || filename.trim().isEmpty()) {
             return Result.error("filename is required");
         }
-        try {
-            Path directory = AVATAR_ROOT.toAbsolutePath().normalize();
-            Path filePath = directory.resolve(filename.trim()).normalize();
-            if (!filePath.startsWith(directory) || !Files.exists(filePath)) {
-                return Result.error("avatar not found");
-            }
-
-            byte[] bytes = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("bytes", bytes);
-            payload.put("contentType", contentType);
-            payload.put("filename", filename.trim());
-            payload.put("base64", Base64.getEncoder().encodeToString(bytes));
-            return Result.success("avatar loaded", payload);
-        } catch (IOException ex) {
-            return Result.error("read avatar failed: " + ex.getMessage());
+        Path directory = AVATAR_ROOT.toAbsolutePath().normalize();
+        Path filePath = directory.resolve(filename.trim()).normalize();
+        if (!filePath.startsWith(directory) || !Files.isRegularFile(filePath)) {
+            return Result.error("avatar not found");
         }
+        return Result.success("avatar loaded", new FileSystemResource(filePath));
     }
 
     @Override
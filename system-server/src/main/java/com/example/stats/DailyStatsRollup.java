@@ -0,0 +1,126 @@
+package com.example.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * 维护 restaurateur_daily_stats：订单下单/完成时增量累加，每晚按源表重算最近几天做压实，
+ * 口径与原 getMetrics 一致（按订单创建日归档，收入只计 COMPLETED）。
+ */
+@Component
+@Slf4j
+public class DailyStatsRollup {
+
+    private static final String UPSERT_RANGE_SQL =
+        "INSERT INTO restaurateur_daily_stats (restaurateur_id, stat_date, income, order_count, dish_count, updated_at) " +
+        "SELECT o.restaurateur_id, DATE(o.created_at), " +
+        "       COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN o.total_amount ELSE 0 END), 0), " +
+        "       COUNT(1), " +
+        "       COALESCE(SUM(q.quantity), 0), " +
+        "       CURRENT_TIMESTAMP " +
+        "FROM order_info o " +
+        "LEFT JOIN (" +
+        "    SELECT oi.order_id, SUM(oi.quantity) AS quantity " +
+        "    FROM order_item oi JOIN order_info x ON x.id = oi.order_id " +
+        "    WHERE x.created_at >= ? AND x.created_at < ? " +
+        "    GROUP BY oi.order_id" +
+        ") q ON q.order_id = o.id " +
+        "WHERE o.restaurateur_id IS NOT NULL AND o.created_at >= ? AND o.created_at < ? " +
+        "GROUP BY o.restaurateur_id, DATE(o.created_at) " +
+        "ON DUPLICATE KEY UPDATE income = VALUES(income), order_count = VALUES(order_count), " +
+        "    dish_count = VALUES(dish_count), updated_at = VALUES(updated_at)";
+
+    private static final String DELETE_RANGE_SQL =
+        "DELETE FROM restaurateur_daily_stats WHERE stat_date >= ? AND stat_date < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean compactionEnabled;
+    private final int compactionDays;
+
+    public DailyStatsRollup(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${stats.rollup.compaction.enabled:true}") boolean compactionEnabled,
+            @Value("${stats.rollup.compaction.days:3}") int compactionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.compactionEnabled = compactionEnabled;
+        this.compactionDays = Math.max(compactionDays, 1);
+    }
+
+    /**
+     * 新订单落库后调用：当日订单数 +1，菜品数累加订单明细数量。
+     */
+    public void recordOrderPlaced(Integer orderId) {
+        jdbcTemplate.update(
+            "INSERT INTO restaurateur_daily_stats (restaurateur_id, stat_date, income, order_count, dish_count, updated_at) " +
+            "SELECT o.restaurateur_id, DATE(o.created_at), 0, 1, " +
+            "       (SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi WHERE oi.order_id = o.id), CURRENT_TIMESTAMP " +
+            "FROM order_info o WHERE o.id = ? AND o.restaurateur_id IS NOT NULL " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + 1, " +
+            "    dish_count = dish_count + VALUES(dish_count), updated_at = VALUES(updated_at)",
+            orderId);
+    }
+
+    /**
+     * 订单流转到 COMPLETED 后调用：把订单金额计入其创建日的收入。
+     */
+    public void recordOrderCompleted(Integer orderId) {
+        jdbcTemplate.update(
+            "INSERT INTO restaurateur_daily_stats (restaurateur_id, stat_date, income, order_count, dish_count, updated_at) " +
+            "SELECT o.restaurateur_id, DATE(o.created_at), o.total_amount, 0, 0, CURRENT_TIMESTAMP " +
+            "FROM order_info o WHERE o.id = ? AND o.restaurateur_id IS NOT NULL " +
+            "ON DUPLICATE KEY UPDATE income = income + VALUES(income), updated_at = VALUES(updated_at)",
+            orderId);
+    }
+
+    /**
+     * 按源表重算 [from, to] 区间内的日汇总，覆盖增量累加可能产生的偏差。
+     * 先删区间内旧行再聚合：源订单已删除的日期不会残留旧汇总；同一事务内完成，读方看不到空窗。
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        java.sql.Date firstDay = java.sql.Date.valueOf(from);
+        java.sql.Date dayAfterLast = java.sql.Date.valueOf(to.plusDays(1));
+        java.sql.Timestamp start = java.sql.Timestamp.valueOf(from.atStartOfDay());
+        java.sql.Timestamp end = java.sql.Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, firstDay, dayAfterLast);
+            return jdbcTemplate.update(UPSERT_RANGE_SQL, start, end, start, end);
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * 从最早的订单或汇总日期开始全量重算，用于初始化或历史数据修复。
+     */
+    public int rebuildAll() {
+        LocalDate earliest = jdbcTemplate.queryForObject(
+            "SELECT LEAST(COALESCE((SELECT DATE(MIN(created_at)) FROM order_info), CURRENT_DATE), " +
+            "             COALESCE((SELECT MIN(stat_date) FROM restaurateur_daily_stats), CURRENT_DATE))",
+            LocalDate.class);
+        LocalDate today = LocalDate.now();
+        return rebuild(earliest == null || earliest.isAfter(today) ? today : earliest, today);
+    }
+
+    @Scheduled(cron = "${stats.rollup.compaction.cron:0 30 3 * * *}")
+    public void compact() {
+        if (!compactionEnabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            int rows = rebuild(today.minusDays(compactionDays), today);
+            log.info("日汇总压实完成: 最近 {} 天, 影响 {} 行", compactionDays, rows);
+        } catch (DataAccessException ex) {
+            log.warn("日汇总压实失败: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.stats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 看板统计的短 TTL 缓存：同一商家并发的多个标签页只触发一次查询，
+ * 订单状态变化、菜品增删时主动失效（在事务提交之后）。
+ */
+@Component
+public class RestaurateurStatsCache {
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public RestaurateurStatsCache(@Value("${stats.dashboard.cache-ttl-ms:5000}") long ttlMillis) {
+        this.ttlNanos = Math.max(ttlMillis, 0) * 1_000_000L;
+    }
+
+    public Map<String, Object> get(Integer restaurateurId, Supplier<Map<String, Object>> loader) {
+        if (ttlNanos == 0) {
+            return loader.get();
+        }
+        while (true) {
+            Entry current = entries.get(restaurateurId);
+            if (current != null && current.isUsable()) {
+                return current.await();
+            }
+            Entry fresh = new Entry();
+            boolean claimed = current == null
+                ? entries.putIfAbsent(restaurateurId, fresh) == null
+                : entries.replace(restaurateurId, current, fresh);
+            if (!claimed) {
+                continue;
+            }
+            try {
+                Map<String, Object> value = Collections.unmodifiableMap(loader.get());
+                fresh.complete(value, System.nanoTime() + ttlNanos);
+                return value;
+            } catch (RuntimeException ex) {
+                entries.remove(restaurateurId, fresh);
+                fresh.future.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * 在事务内调用时推迟到提交之后再失效：提交前失效的话，并发的 get 会重新读到未提交前的数据并缓存整个 TTL。
+     */
+    public void evict(Integer restaurateurId) {
+        if (restaurateurId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entries.remove(restaurateurId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entries.remove(restaurateurId);
+            }
+        });
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        void complete(Map<String, Object> value, long expiresAt) {
+            this.expiresAt = expiresAt;
+            future.complete(value);
+        }
+
+        /** 加载中（由其他线程负责）或尚未过期都可以直接复用 */
+        boolean isUsable() {
+            return !future.isDone() || (!future.isCompletedExceptionally() && System.nanoTime() - expiresAt < 0);
+        }
+
+        Map<String, Object> await() {
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw ex;
+            }
+        }
+    }
+}
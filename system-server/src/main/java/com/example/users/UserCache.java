@@ -0,0 +1,129 @@
+package com.example.users;
+
+import com.example.common.DataRequest;
+import com.example.entity.User;
+import com.example.mapper.UserMapper;
+import com.example.security.TokenRevocations;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * 用户按主键 / 用户名的读穿缓存。
+ * 用户名只缓存到 id 的映射，实体只存一份；对外返回副本，调用方修改实体不会污染缓存。
+ * 用户资料、密码、头像变更后由 UserServiceImpl 调用 evict。
+ * 同时为 JwtUtil 提供按用户持久化的 Token 吊销点；其他节点最迟在缓存过期（ttl-seconds）后看到新的吊销点。
+ */
+@Component
+public class UserCache implements TokenRevocations {
+
+    private final UserMapper userMapper;
+    private final Cache<Integer, User> byId;
+    private final Cache<String, Integer> idsByUsername;
+
+    public UserCache(
+            UserMapper userMapper,
+            MeterRegistry meterRegistry,
+            @Value("${users.cache.maximum-size:10000}") long maximumSize,
+            @Value("${users.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.userMapper = userMapper;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.idsByUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByUsername, "users.byUsername");
+    }
+
+    public User getById(Integer id) {
+        return copyOf(cached(id));
+    }
+
+    public User getByUsername(String username) {
+        return getById(idOf(username));
+    }
+
+    /**
+     * 当前请求的用户：已认证请求直接按 Token 中的用户ID取，未带身份的（如内部调用）按用户名回退。
+     */
+    public User getCurrent(DataRequest request, String username) {
+        Integer userId = request == null || request.getPrincipal() == null ? null : request.getPrincipal().intUserId();
+        return userId != null ? getById(userId) : getByUsername(username);
+    }
+
+    private User cached(Integer id) {
+        return id == null ? null : byId.get(id, userMapper::getById);
+    }
+
+    private Integer idOf(String username) {
+        if (username == null) {
+            return null;
+        }
+        return idsByUsername.get(username, key -> {
+            User user = userMapper.getByUsername(key);
+            if (user == null) {
+                return null;
+            }
+            byId.put(user.getId(), user);
+            return user.getId();
+        });
+    }
+
+    /**
+     * 每次鉴权都会调用：只读缓存中的实体，不复制。
+     */
+    @Override
+    public Instant tokensValidAfter(Long userId, String username) {
+        User user = cached(userId != null ? Math.toIntExact(userId) : idOf(username));
+        if (user == null || user.getTokensValidAfter() == null) {
+            return null;
+        }
+        return user.getTokensValidAfter().atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    public void evict(Integer id, String username) {
+        Integer cachedId = id;
+        if (username != null) {
+            if (cachedId == null) {
+                cachedId = idsByUsername.getIfPresent(username);
+            }
+            idsByUsername.invalidate(username);
+        }
+        if (cachedId != null) {
+            byId.invalidate(cachedId);
+        }
+    }
+
+    private User copyOf(User source) {
+        if (source == null) {
+            return null;
+        }
+        User copy = new User();
+        copy.setId(source.getId());
+        copy.setUsername(source.getUsername());
+        copy.setPassword(source.getPassword());
+        copy.setNickname(source.getNickname());
+        copy.setRole(source.getRole());
+        copy.setAddress(source.getAddress());
+        copy.setEmail(source.getEmail());
+        copy.setPhone(source.getPhone());
+        copy.setAvatarUrl(source.getAvatarUrl());
+        copy.setTokensValidAfter(source.getTokensValidAfter());
+        copy.setDeliveryman(source.getDeliveryman());
+        copy.setRestaurateur(source.getRestaurateur());
+        return copy;
+    }
+}
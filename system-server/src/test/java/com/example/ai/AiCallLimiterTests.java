@@ -0,0 +1,187 @@
+package com.example.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiCallLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /** 令牌桶关闭，只看名额与队列 */
+    private AiCallLimiter limiter(int maxConcurrent, int maxQueued, long queueTimeoutMs) {
+        return new AiCallLimiter(meterRegistry, maxConcurrent, maxQueued, queueTimeoutMs, 0, 1);
+    }
+
+    @Test
+    void releaseHandsTheSlotToTheNextWaiter() {
+        AiCallLimiter limiter = limiter(1, 2, 0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        AtomicInteger thirdCalls = new AtomicInteger();
+
+        CompletableFuture<String> firstResult = limiter.submit("alice", "complete", () -> first);
+        CompletableFuture<String> secondResult = limiter.submit("bob", "complete", () -> second);
+        CompletableFuture<String> thirdResult = limiter.submit("carol", "complete", () -> {
+            thirdCalls.incrementAndGet();
+            return CompletableFuture.completedFuture("third");
+        });
+        assertThat(active()).isEqualTo(1);
+        assertThat(queued()).isEqualTo(2);
+
+        first.complete("first");
+
+        // 名额直接转交给队首，在途数不变
+        assertThat(firstResult).isCompletedWithValue("first");
+        assertThat(active()).isEqualTo(1);
+        assertThat(queued()).isEqualTo(1);
+        assertThat(thirdCalls).hasValue(0);
+
+        second.complete("second");
+
+        assertThat(secondResult).isCompletedWithValue("second");
+        assertThat(thirdResult).isCompletedWithValue("third");
+        assertThat(thirdCalls).hasValue(1);
+        assertThat(active()).isZero();
+        assertThat(queued()).isZero();
+    }
+
+    @Test
+    void upstreamFailureIsPassedOnAndReleasesTheSlot() {
+        AiCallLimiter limiter = limiter(1, 0, 0);
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        CompletableFuture<String> result = limiter.submit("alice", "complete", () -> CompletableFuture.failedFuture(failure));
+
+        assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() {
+        AiCallLimiter limiter = limiter(1, 1, 0);
+        limiter.submit("alice", "complete", CompletableFuture::new);
+        limiter.submit("bob", "complete", CompletableFuture::new);
+
+        CompletableFuture<Object> rejected = limiter.submit("carol", "complete", CompletableFuture::new);
+
+        assertTooManyRequests(rejected);
+        assertThat(rejectedCount("queue_full")).isEqualTo(1);
+        assertThat(queued()).isEqualTo(1);
+    }
+
+    @Test
+    void cancellingAQueuedCallRemovesItWithoutCallingUpstream() {
+        AiCallLimiter limiter = limiter(1, 1, 0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger queuedCalls = new AtomicInteger();
+        limiter.submit("alice", "complete", () -> first);
+        CompletableFuture<String> queuedResult = limiter.submit("bob", "complete", () -> {
+            queuedCalls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        queuedResult.cancel(true);
+        assertThat(queued()).isZero();
+
+        first.complete("first");
+
+        assertThat(queuedCalls).hasValue(0);
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void cancellingAnInFlightCallCancelsUpstreamAndFreesTheSlot() {
+        AiCallLimiter limiter = limiter(1, 1, 0);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = limiter.submit("alice", "stream", () -> upstream);
+        CompletableFuture<String> next = new CompletableFuture<>();
+        CompletableFuture<String> nextResult = limiter.submit("bob", "stream", () -> next);
+
+        inFlight.cancel(true);
+
+        assertThat(upstream).isCancelled();
+        // 名额交给排队的调用
+        assertThat(queued()).isZero();
+        assertThat(active()).isEqualTo(1);
+        next.complete("next");
+        assertThat(nextResult).isCompletedWithValue("next");
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void queuedCallExpiresAfterTheQueueTimeout() throws Exception {
+        AiCallLimiter limiter = limiter(1, 1, 50);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger queuedCalls = new AtomicInteger();
+        limiter.submit("alice", "complete", () -> first);
+        CompletableFuture<String> queuedResult = limiter.submit("bob", "complete", () -> {
+            queuedCalls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        assertThatThrownBy(() -> queuedResult.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThat(rejectedCount("queue_timeout")).isEqualTo(1);
+        assertThat(queued()).isZero();
+
+        first.complete("first");
+        assertThat(queuedCalls).hasValue(0);
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void tokenBucketAllowsTheBurstPerUserThenRejects() {
+        // 每分钟 1 次：测试期间几乎不补充
+        AiCallLimiter limiter = new AiCallLimiter(meterRegistry, 10, 0, 0, 1, 2);
+
+        assertThat(limiter.submit("alice", "complete", () -> CompletableFuture.completedFuture("1"))).isCompleted();
+        assertThat(limiter.submit("alice", "complete", () -> CompletableFuture.completedFuture("2"))).isCompleted();
+        assertTooManyRequests(limiter.submit("alice", "complete", () -> CompletableFuture.completedFuture("3")));
+        assertThat(limiter.submit("bob", "complete", () -> CompletableFuture.completedFuture("4"))).isCompleted();
+
+        assertThat(rejectedCount("rate_limited")).isEqualTo(1);
+        assertThat(active()).isZero();
+    }
+
+    @Test
+    void tokenBucketRefillsOverTime() throws InterruptedException {
+        // 每分钟 60000 次，即每毫秒补充一个令牌
+        AiCallLimiter limiter = new AiCallLimiter(meterRegistry, 10, 0, 0, 60_000, 1);
+
+        assertThat(limiter.submit("alice", "complete", () -> CompletableFuture.completedFuture("1"))).isCompleted();
+        Thread.sleep(5);
+
+        assertThat(limiter.submit("alice", "complete", () -> CompletableFuture.completedFuture("2")))
+            .isCompletedWithValue("2");
+    }
+
+    private static void assertTooManyRequests(CompletableFuture<?> future) {
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::join)
+            .cause()
+            .isInstanceOfSatisfying(ResponseStatusException.class,
+                ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    private double active() {
+        return meterRegistry.get("ai.upstream.active").gauge().value();
+    }
+
+    private double queued() {
+        return meterRegistry.get("ai.upstream.queued").gauge().value();
+    }
+
+    private double rejectedCount(String reason) {
+        return meterRegistry.get("ai.upstream.rejected").tag("reason", reason).counter().count();
+    }
+}
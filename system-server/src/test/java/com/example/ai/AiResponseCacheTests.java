@@ -0,0 +1,66 @@
+package com.example.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AiResponseCacheTests {
+
+    private final AiResponseCache cache =
+        new AiResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), true, 100, 3600);
+
+    @Test
+    void keyIgnoresWhitespaceAndExtraMessageFields() {
+        String key = cache.key("deepseek-chat", List.of(Map.of("role", "user", "content", "你好")));
+
+        assertThat(cache.key("deepseek-chat", List.of(Map.of("role", "user", "content", " 你好\n", "id", 42))))
+            .isEqualTo(key);
+        assertThat(cache.key("deepseek-reasoner", List.of(Map.of("role", "user", "content", "你好"))))
+            .isNotEqualTo(key);
+    }
+
+    @Test
+    void injectedContextIsPartOfTheKey() {
+        Map<String, Object> question = Map.of("role", "user", "content", "怎么下单");
+
+        String withoutContext = cache.key("deepseek-chat", List.of(question));
+        String withContext = cache.key("deepseek-chat", List.of(context("订单由顾客创建"), question));
+        String withOtherContext = cache.key("deepseek-chat", List.of(context("订单由商家创建"), question));
+
+        assertThat(withContext).isNotEqualTo(withoutContext).isNotEqualTo(withOtherContext);
+    }
+
+    @Test
+    void sameFinalRequestIsServedFromTheCache() {
+        AtomicInteger loads = new AtomicInteger();
+        Map<String, Object> request = Map.of(
+            "model", "deepseek-chat",
+            "messages", List.of(context("订单由顾客创建"), Map.of("role", "user", "content", "怎么下单")));
+
+        Map<String, Object> first = cache.get(request, () -> load(loads)).join();
+        Map<String, Object> second = cache.get(request, () -> load(loads)).join();
+        Map<String, Object> changedContext = cache.get(Map.of(
+            "model", "deepseek-chat",
+            "messages", List.of(context("订单由商家创建"), Map.of("role", "user", "content", "怎么下单"))),
+            () -> load(loads)).join();
+
+        assertThat(second).isSameAs(first);
+        assertThat(changedContext).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static Map<String, Object> context(String text) {
+        return Map.of("role", "user", "content", "[项目上下文]\n" + text);
+    }
+
+    private static CompletableFuture<Map<String, Object>> load(AtomicInteger loads) {
+        return CompletableFuture.completedFuture(Map.of("n", loads.incrementAndGet()));
+    }
+}
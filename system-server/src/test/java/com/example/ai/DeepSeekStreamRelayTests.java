@@ -0,0 +1,305 @@
+package com.example.ai;
+
+import com.example.controller.AIController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /api/ai/chat/stream 经真实的 Tomcat 与 HttpClient 转发一个 JDK HttpServer 模拟的上游：
+ * 校验 delta / done / error 事件，以及浏览器断开后上游被取消、限流名额被归还。
+ */
+class DeepSeekStreamRelayTests {
+
+    private static final String REQUEST_BODY = "{\"data\":{\"messages\":[{\"role\":\"user\",\"content\":\"你好\"}]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private HttpServer upstreamServer;
+    private ExecutorService upstreamExecutor;
+    private volatile HttpHandler upstream;
+    private ConfigurableApplicationContext app;
+
+    @BeforeEach
+    void start() throws IOException {
+        upstreamServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstreamServer.setExecutor(upstreamExecutor);
+        upstreamServer.createContext("/chat/completions", exchange -> {
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                upstream.handle(exchange);
+            }
+        });
+        upstreamServer.start();
+
+        app = new SpringApplicationBuilder(RelayApp.class)
+            .web(WebApplicationType.SERVLET)
+            // 以命令行参数传入，优先级高于 application.yml；只有一个名额且不排队，名额未归还时后续请求会被拒绝
+            .run("--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--deepseek.api.key=test",
+                "--deepseek.api.url=http://127.0.0.1:" + upstreamServer.getAddress().getPort(),
+                "--deepseek.limits.max-concurrent=1",
+                "--deepseek.limits.max-queued=0",
+                "--deepseek.limits.per-user-per-minute=0");
+    }
+
+    @AfterEach
+    void stop() {
+        if (app != null) {
+            app.close();
+        }
+        upstreamServer.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Test
+    void relaysDeltasAndUsageThenDone() throws Exception {
+        upstream = exchange -> {
+            OutputStream out = startEventStream(exchange);
+            writeChunk(out, "{\"choices\":[{\"delta\":{\"reasoning_content\":\"想\"}}]}");
+            out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+            writeChunk(out, "{\"choices\":[{\"delta\":{\"content\":\"你\"}}]}");
+            writeChunk(out, "{\"choices\":[{\"delta\":{\"content\":\"好\"}}],\"usage\":{\"total_tokens\":7}}");
+            writeChunk(out, "[DONE]");
+        };
+
+        List<Event> events = stream();
+
+        assertThat(events).extracting(Event::name).containsExactly("delta", "delta", "delta", "done");
+        assertThat(events.get(0).data().get("reasoning_content").asText()).isEqualTo("想");
+        assertThat(events.get(1).data().get("content").asText()).isEqualTo("你");
+        assertThat(events.get(2).data().get("content").asText()).isEqualTo("好");
+        assertThat(events.get(3).data().path("usage").path("total_tokens").asInt()).isEqualTo(7);
+        awaitSlotReleased();
+    }
+
+    @Test
+    void upstreamEndingWithoutDoneStillSendsDone() throws Exception {
+        upstream = exchange -> writeChunk(startEventStream(exchange), "{\"choices\":[{\"delta\":{\"content\":\"你\"}}]}");
+
+        assertThat(stream()).extracting(Event::name).containsExactly("delta", "done");
+        awaitSlotReleased();
+    }
+
+    @Test
+    void nonOkUpstreamBecomesAnErrorEvent() throws Exception {
+        upstream = exchange -> {
+            byte[] body = "{\"error\":\"boom\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, body.length);
+            exchange.getResponseBody().write(body);
+        };
+
+        List<Event> events = stream();
+
+        assertThat(events).extracting(Event::name).containsExactly("error");
+        assertThat(events.get(0).data().get("message").asText()).isEqualTo("AI服务响应异常");
+        awaitSlotReleased();
+    }
+
+    @Test
+    void clientDisconnectCancelsTheUpstreamAndReleasesTheSlot() throws Exception {
+        CountDownLatch upstreamClosed = new CountDownLatch(1);
+        upstream = exchange -> {
+            OutputStream out = startEventStream(exchange);
+            try {
+                // 持续输出，直到中继断开上游连接使写入失败
+                for (int i = 0; i < 400; i++) {
+                    writeChunk(out, "{\"choices\":[{\"delta\":{\"content\":\"" + i + "\"}}]}");
+                    Thread.sleep(25);
+                }
+            } catch (IOException ex) {
+                upstreamClosed.countDown();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        HttpResponse<InputStream> response = httpClient.send(streamRequest(), HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.startsWith("event:delta")) {
+                // 读到第一个 delta 即断开
+            }
+            assertThat(line).isNotNull();
+        }
+
+        assertThat(upstreamClosed.await(10, TimeUnit.SECONDS)).isTrue();
+        awaitSlotReleased();
+
+        // 唯一的名额已归还，下一次请求不会被拒绝
+        upstream = exchange -> writeChunk(startEventStream(exchange), "[DONE]");
+        assertThat(stream()).extracting(Event::name).containsExactly("done");
+    }
+
+    @Test
+    void doneReleasesTheSlotWithoutWaitingForTheEmitterCallbacks() throws Exception {
+        CountDownLatch upstreamClosed = new CountDownLatch(1);
+        upstream = exchange -> {
+            OutputStream out = startEventStream(exchange);
+            writeChunk(out, "[DONE]");
+            try {
+                // [DONE] 之后上游不关连接
+                for (int i = 0; i < 200; i++) {
+                    out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(25);
+                }
+            } catch (IOException ex) {
+                upstreamClosed.countDown();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // 未交给 Spring MVC 的 emitter 没有 onCompletion/onError 回调，名额只能由中继自己归还
+        app.getBean(DeepSeekStreamRelay.class).open("alice",
+            app.getBean(DeepSeekClient.class).buildRequest(objectMapper.readValue(
+                "{\"messages\":[{\"role\":\"user\",\"content\":\"你好\"}]}", Map.class), true));
+
+        awaitSlotReleased();
+        assertThat(upstreamClosed.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancellingTheLimiterFutureReleasesTheSlotOfAStuckUpstream() {
+        // 主动取消订阅后 HttpClient 的 future 不会结束；名额只能靠取消限流器返回的 future 归还
+        AiCallLimiter limiter = new AiCallLimiter(new SimpleMeterRegistry(), 1, 0, 0, 0, 1);
+        CompletableFuture<Void> stuck = new CompletableFuture<>();
+
+        CompletableFuture<Void> call = limiter.submit("alice", "stream", () -> stuck);
+        call.cancel(true);
+
+        assertThat(stuck).isCancelled();
+        assertThat(limiter.submit("alice", "stream", () -> CompletableFuture.completedFuture(null))).isCompleted();
+    }
+
+    private List<Event> stream() throws Exception {
+        HttpResponse<Stream<String>> response =
+            httpClient.send(streamRequest(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        List<Event> events = new ArrayList<>();
+        String name = null;
+        for (String line : (Iterable<String>) response.body()::iterator) {
+            if (line.startsWith("event:")) {
+                name = line.substring("event:".length());
+            } else if (line.startsWith("data:")) {
+                events.add(new Event(name, objectMapper.readTree(line.substring("data:".length()))));
+            }
+        }
+        return events;
+    }
+
+    private HttpRequest streamRequest() {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port() + "/api/ai/chat/stream"))
+            .header("Content-Type", "application/json")
+            .header("Accept", "text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+            .build();
+    }
+
+    private void awaitSlotReleased() throws InterruptedException {
+        MeterRegistry meterRegistry = app.getBean(MeterRegistry.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (active(meterRegistry) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(active(meterRegistry)).isZero();
+    }
+
+    private static double active(MeterRegistry meterRegistry) {
+        return meterRegistry.get("ai.upstream.active").gauge().value();
+    }
+
+    private int port() {
+        return ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+    }
+
+    private static OutputStream startEventStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    private static void writeChunk(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private record Event(String name, JsonNode data) {
+    }
+
+    /**
+     * 只装配 AI 接口与其依赖，不连数据库、不做鉴权。
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+        PropertyPlaceholderAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class
+    })
+    @Import({
+        AIController.class,
+        DeepSeekClient.class,
+        DeepSeekStreamRelay.class,
+        AiCallLimiter.class,
+        AiResponseCache.class,
+        ProjectContextIndex.class
+    })
+    static class RelayApp {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
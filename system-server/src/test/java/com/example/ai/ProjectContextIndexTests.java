@@ -0,0 +1,106 @@
+package com.example.ai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectContextIndexTests {
+
+    private static final String DOC = """
+        # 订单
+        订单由顾客创建。
+        ## 状态
+        PENDING 待处理，PROCESSING 处理中。
+        ```bash
+        # 重启服务
+        ./run.sh
+        ```
+        # 聊天
+        聊天走 STOMP。
+        """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void termsSplitAsciiWordsAndHanBigrams() {
+        assertThat(ProjectContextIndex.terms("Order_status 订单状态 a X1 订单 明细"))
+            .containsExactlyInAnyOrder("order", "status", "订单", "单状", "状态", "x1", "明细");
+        assertThat(ProjectContextIndex.terms(null)).isEmpty();
+    }
+
+    @Test
+    void sectionsCarryTheirHeadingPath() throws IOException {
+        ProjectContextIndex index = index(DOC, 8000);
+
+        String selected = index.select("PROCESSING 是什么");
+
+        assertThat(selected).startsWith("## 订单 > 状态\nPENDING").doesNotContain("聊天").doesNotContain("顾客");
+    }
+
+    @Test
+    void headingsInsideCodeFencesDoNotSplitTheSection() throws IOException {
+        ProjectContextIndex index = index(DOC, 8000);
+
+        assertThat(index.select("怎么重启服务"))
+            .startsWith("## 订单 > 状态\n")
+            .contains("# 重启服务\n./run.sh\n```")
+            .doesNotContain("聊天");
+    }
+
+    @Test
+    void unrelatedQuestionGetsNoContext() throws IOException {
+        ProjectContextIndex index = index(DOC, 8000);
+
+        assertThat(index.select("weather tomorrow")).isNull();
+        assertThat(index.select(null)).isNull();
+    }
+
+    @Test
+    void missingFileGetsNoContext() {
+        ProjectContextIndex index = new ProjectContextIndex(
+            new DefaultResourceLoader(), "file:" + dir.resolve("missing.md"), 8000, 0);
+
+        assertThat(index.select("订单")).isNull();
+    }
+
+    @Test
+    void mostRelevantSectionsArePackedUpToMaxCharsInDocumentOrder() throws IOException {
+        String a = "## A\nalpha " + "a".repeat(19);
+        String b = "## B\nalpha " + "b".repeat(29);
+        String c = "## C\nalpha gamma";
+        ProjectContextIndex index = index(doc(a, b, c), 50);
+
+        // C 最相关（16 字符），再按文档顺序补 A（30 字符）；B（40 字符）放不下
+        assertThat(index.select("alpha gamma")).isEqualTo(a + "\n\n" + c);
+    }
+
+    @Test
+    void overlongBestSectionIsTruncated() throws IOException {
+        ProjectContextIndex index = index(doc("## A\nalpha", "## C\nalpha gamma"), 10);
+
+        assertThat(index.select("gamma")).isEqualTo("## C\nalpha\n... (已截断)");
+    }
+
+    private ProjectContextIndex index(String text, int maxChars) throws IOException {
+        Path file = dir.resolve("context.md");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return new ProjectContextIndex(new DefaultResourceLoader(), "file:" + file, maxChars, 0);
+    }
+
+    /** 各段形如 "## 标题\n正文"，还原成一级标题的文档 */
+    private static String doc(String... sections) {
+        StringBuilder sb = new StringBuilder();
+        for (String section : sections) {
+            sb.append(section.replaceFirst("^## ", "# ")).append("\n\n");
+        }
+        return sb.toString();
+    }
+}
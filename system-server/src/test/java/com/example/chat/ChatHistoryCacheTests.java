@@ -0,0 +1,162 @@
+package com.example.chat;
+
+import com.example.dto.ChatMessageDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatHistoryCacheTests {
+
+    /** 与 ChatHistoryCache.ENTRY_OVERHEAD_BYTES 一致，单字符内容的消息估算为 162 字节 */
+    private static final long ONE_CHAR_MESSAGE_BYTES = 160 + 2;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ChatHistoryCache cache(int capacity, long maxBytes) {
+        return new ChatHistoryCache(meterRegistry, true, capacity, maxBytes, "simple");
+    }
+
+    @Test
+    void seededWindowAnswersRecentWithCopies() {
+        ChatHistoryCache cache = cache(10, Long.MAX_VALUE);
+        cache.seed(1, cache.stamp(1), messages(1, 2, 3), 10);
+
+        List<ChatMessageDto> recent = cache.recent(1, 10);
+        assertThat(ids(recent)).containsExactly(1, 2, 3);
+
+        recent.get(0).setContent("changed");
+        assertThat(cache.recent(1, 10).get(0).getContent()).isEqualTo("m");
+    }
+
+    @Test
+    void seedIsDroppedWhenAMessageIsWrittenAfterTheStamp() {
+        ChatHistoryCache cache = cache(10, Long.MAX_VALUE);
+        long stamp = cache.stamp(1);
+        // 查库期间提交的新消息：窗口尚不存在，只推进写入戳
+        cache.append(1, message(4));
+        cache.seed(1, stamp, messages(1, 2, 3), 10);
+
+        assertThat(cache.recent(1, 10)).isNull();
+
+        cache.seed(1, cache.stamp(1), messages(1, 2, 3, 4), 10);
+        assertThat(ids(cache.recent(1, 10))).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void seedIsDroppedWhenMessagesAreMarkedReadAfterTheStamp() {
+        ChatHistoryCache cache = cache(10, Long.MAX_VALUE);
+        long stamp = cache.stamp(1);
+        // 查库期间提交的已读：查到的行仍是未读
+        cache.markRead(1, "GUEST", 7);
+        ChatMessageDto unread = message(1);
+        unread.setReceiverRole("GUEST");
+        unread.setReceiverId(7);
+        cache.seed(1, stamp, List.of(unread), 10);
+
+        assertThat(cache.recent(1, 10)).isNull();
+    }
+
+    @Test
+    void shortSeedHoldsTheWholeSessionButAFullPageDoesNot() {
+        ChatHistoryCache cache = cache(50, Long.MAX_VALUE);
+        cache.seed(1, cache.stamp(1), messages(1, 2), 20);
+        cache.seed(2, cache.stamp(2), messages(1, 2), 2);
+
+        assertThat(ids(cache.recent(1, 50))).containsExactly(1, 2);
+        assertThat(cache.recent(2, 50)).isNull();
+        assertThat(ids(cache.recent(2, 2))).containsExactly(1, 2);
+    }
+
+    @Test
+    void appendTrimsTheWindowToCapacity() {
+        ChatHistoryCache cache = cache(3, Long.MAX_VALUE);
+        cache.seed(1, cache.stamp(1), messages(1, 2, 3), 3);
+        cache.append(1, message(4));
+
+        assertThat(ids(cache.recent(1, 3))).containsExactly(2, 3, 4);
+        assertThat(ids(cache.recent(1, 2))).containsExactly(3, 4);
+    }
+
+    @Test
+    void outOfOrderAppendInvalidatesTheWindow() {
+        ChatHistoryCache cache = cache(10, Long.MAX_VALUE);
+        cache.seed(1, cache.stamp(1), messages(1, 2), 10);
+        cache.append(1, message(5));
+        cache.append(1, message(4));
+
+        assertThat(cache.recent(1, 10)).isNull();
+        assertThat(bytes()).isZero();
+
+        cache.seed(1, cache.stamp(1), messages(1, 2, 4, 5), 10);
+        assertThat(ids(cache.recent(1, 10))).containsExactly(1, 2, 4, 5);
+    }
+
+    @Test
+    void byteBudgetEvictsTheLeastRecentlyUsedSession() {
+        ChatHistoryCache cache = cache(10, 2 * ONE_CHAR_MESSAGE_BYTES);
+        cache.seed(1, cache.stamp(1), messages(1), 10);
+        cache.seed(2, cache.stamp(2), messages(1), 10);
+        assertThat(bytes()).isEqualTo(2 * ONE_CHAR_MESSAGE_BYTES);
+
+        // 访问会话 1 后，会话 2 成为最久未用
+        assertThat(cache.recent(1, 10)).hasSize(1);
+        cache.seed(3, cache.stamp(3), messages(1), 10);
+
+        assertThat(cache.recent(2, 10)).isNull();
+        assertThat(cache.recent(1, 10)).hasSize(1);
+        assertThat(cache.recent(3, 10)).hasSize(1);
+        assertThat(bytes()).isEqualTo(2 * ONE_CHAR_MESSAGE_BYTES);
+    }
+
+    @Test
+    void markReadFlagsOnlyTheReceiversMessages() {
+        ChatHistoryCache cache = cache(10, Long.MAX_VALUE);
+        ChatMessageDto toGuest = message(1);
+        toGuest.setReceiverRole("GUEST");
+        toGuest.setReceiverId(7);
+        ChatMessageDto toRestaurateur = message(2);
+        toRestaurateur.setReceiverRole("RESTAURATEUR");
+        toRestaurateur.setReceiverId(9);
+        cache.seed(1, cache.stamp(1), List.of(toGuest, toRestaurateur), 10);
+
+        cache.markRead(1, "GUEST", 7);
+
+        List<ChatMessageDto> recent = cache.recent(1, 10);
+        assertThat(recent.get(0).getRead()).isTrue();
+        assertThat(recent.get(1).getRead()).isFalse();
+    }
+
+    @Test
+    void relayModeDisablesTheCache() {
+        ChatHistoryCache cache = new ChatHistoryCache(meterRegistry, true, 10, Long.MAX_VALUE, "relay");
+        cache.seed(1, cache.stamp(1), messages(1, 2), 10);
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.recent(1, 10)).isNull();
+    }
+
+    private double bytes() {
+        return meterRegistry.get("chat.history.cache.bytes").gauge().value();
+    }
+
+    private static List<ChatMessageDto> messages(int... ids) {
+        return IntStream.of(ids).mapToObj(ChatHistoryCacheTests::message).collect(Collectors.toList());
+    }
+
+    private static ChatMessageDto message(int id) {
+        return ChatMessageDto.builder()
+                .id(id)
+                .content("m")
+                .read(Boolean.FALSE)
+                .build();
+    }
+
+    private static List<Integer> ids(List<ChatMessageDto> messages) {
+        return messages.stream().map(ChatMessageDto::getId).collect(Collectors.toList());
+    }
+}
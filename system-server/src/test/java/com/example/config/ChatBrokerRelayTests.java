@@ -0,0 +1,216 @@
+package com.example.config;
+
+import com.example.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * chat.broker.mode=relay：两个节点经同一个 STOMP 代理（内嵌 Artemis）转发，
+ * 连在节点 A 上的用户能收到节点 B 发往其 /user 目的地的消息。
+ */
+class ChatBrokerRelayTests {
+
+    private static final String SECRET = "chat-broker-relay-tests-secret-0123456789";
+
+    @TempDir
+    static Path brokerDir;
+
+    private static EmbeddedActiveMQ broker;
+    private static int stompPort;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        stompPort = freePort();
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setBrokerInstance(brokerDir.toFile());
+        // 与 RabbitMQ 的 STOMP 约定一致：/queue/ 点对点，/topic/ 广播
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + stompPort
+            + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (stompClient != null) {
+            stompClient.stop();
+            ((ThreadPoolTaskScheduler) stompClient.getTaskScheduler()).shutdown();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+    }
+
+    @Test
+    void userDestinationSentOnOneNodeReachesSessionOnAnother() throws Exception {
+        nodeA = startNode();
+        nodeB = startNode();
+        awaitBrokerAvailable(nodeA);
+        awaitBrokerAvailable(nodeB);
+
+        String token = nodeA.getBean(JwtUtil.class).generateToken("alice", "RESTAURATEUR", 1L, Map.of()).getToken();
+        stompClient = new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        // 订阅回执依赖调度器做超时跟踪
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        stompClient.setTaskScheduler(scheduler);
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        StompSession session = stompClient.connectAsync("http://127.0.0.1:" + port(nodeA) + "/ws/chat",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() { })
+            .get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.setAutoReceipt(true);
+        session.subscribe("/user/queue/orders", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertThat(subscribed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // 节点 B 上没有 alice 的会话，要等用户注册表广播（约 10 秒一次）同步后才能直接解析；
+        // 经 unresolved 广播转发的副本带着 destination-type=MULTICAST 头，Artemis 会丢弃（RabbitMQ 忽略该头），
+        // 因此按间隔重发直到送达
+        SimpMessagingTemplate template = nodeB.getBean(SimpMessagingTemplate.class);
+        Map<?, ?> frame = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (frame == null && System.nanoTime() < deadline) {
+            template.convertAndSendToUser("alice", "/queue/orders", Map.of("type", "ORDER_DELTA", "from", "node-b"));
+            frame = received.poll(500, TimeUnit.MILLISECONDS);
+        }
+        assertThat(frame).isNotNull();
+        assertThat(frame.get("type")).isEqualTo("ORDER_DELTA");
+        assertThat(frame.get("from")).isEqualTo("node-b");
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(RelayNode.class)
+            .web(WebApplicationType.SERVLET)
+            // 以命令行参数传入，优先级高于 application.yml
+            .run("--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--chat.broker.mode=relay",
+                "--chat.broker.relay.host=127.0.0.1",
+                "--chat.broker.relay.port=" + stompPort,
+                "--security.jwt.secret=" + SECRET);
+    }
+
+    private static void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = node.getBean(StompBrokerRelayMessageHandler.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!relay.isBrokerAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(relay.isBrokerAvailable()).isTrue();
+    }
+
+    private static int port(ConfigurableApplicationContext node) {
+        return ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 只装配 STOMP 端点与代理配置，不连数据库。
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+        PropertyPlaceholderAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebSocketServletAutoConfiguration.class,
+        WebSocketMessagingAutoConfiguration.class
+    })
+    @Import({
+        WebSocketConfig.class,
+        WebSocketAuthChannelInterceptor.class,
+        StompFrameMetricsInterceptor.class,
+        QueryBudgetInterceptor.class,
+        JwtUtil.class
+    })
+    static class RelayNode {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.config;
+
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 经 HTTP 统计范围执行真实的 MyBatis 语句，验证 fail-fast 下重复语句会让请求失败。
+ */
+class QueryBudgetInterceptorTests {
+
+    private static final int MAX_REPEATS = 3;
+
+    @Test
+    void failFastRejectsARequestThatRepeatsAStatement() throws Exception {
+        MockMvc mvc = probe(new QueryBudgetInterceptor(true, 50, MAX_REPEATS, 0, true));
+
+        mvc.perform(get("/probe").param("times", String.valueOf(MAX_REPEATS))).andExpect(status().isOk());
+        assertThatThrownBy(() -> mvc.perform(get("/probe").param("times", String.valueOf(MAX_REPEATS + 1))))
+            .hasRootCauseInstanceOf(IllegalStateException.class)
+            .rootCause()
+            .hasMessageContaining("GET /probe")
+            .hasMessageContaining("ProbeMapper.one x" + (MAX_REPEATS + 1));
+
+        // 失败请求的统计范围已结束，不影响后续请求
+        mvc.perform(get("/probe").param("times", "1")).andExpect(status().isOk());
+    }
+
+    @Test
+    void withoutFailFastTheRequestOnlyWarns() throws Exception {
+        MockMvc mvc = probe(new QueryBudgetInterceptor(true, 50, MAX_REPEATS, 0, false));
+
+        mvc.perform(get("/probe").param("times", String.valueOf(MAX_REPEATS * 2))).andExpect(status().isOk());
+    }
+
+    @Test
+    void failFastAlsoCapsTheTotalStatementCount() throws Exception {
+        MockMvc mvc = probe(new QueryBudgetInterceptor(true, 2, 10, 0, true));
+
+        assertThatThrownBy(() -> mvc.perform(get("/probe").param("times", "3")))
+            .hasRootCauseInstanceOf(IllegalStateException.class)
+            .rootCause()
+            .hasMessageContaining("total=3");
+    }
+
+    private static MockMvc probe(QueryBudgetInterceptor interceptor) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:query-budget");
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(ProbeMapper.class);
+        configuration.addInterceptor(interceptor);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        return MockMvcBuilders.standaloneSetup(new ProbeController(sqlSessionFactory))
+            .addInterceptors(interceptor.httpScope())
+            .build();
+    }
+
+    interface ProbeMapper {
+        @Select("SELECT 1")
+        Integer one();
+    }
+
+    @RestController
+    static class ProbeController {
+        private final SqlSessionFactory sqlSessionFactory;
+
+        ProbeController(SqlSessionFactory sqlSessionFactory) {
+            this.sqlSessionFactory = sqlSessionFactory;
+        }
+
+        /**
+         * 逐次执行同一条语句，模拟按行回查的 N+1。
+         */
+        @GetMapping("/probe")
+        int probe(@RequestParam int times) {
+            try (SqlSession session = sqlSessionFactory.openSession(true)) {
+                ProbeMapper mapper = session.getMapper(ProbeMapper.class);
+                int sum = 0;
+                for (int i = 0; i < times; i++) {
+                    sum += mapper.one();
+                }
+                return sum;
+            }
+        }
+    }
+}
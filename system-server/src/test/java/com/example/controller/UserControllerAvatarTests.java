@@ -0,0 +1,111 @@
+package com.example.controller;
+
+import com.example.common.Result;
+import com.example.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 头像下载的缓存校验与 Range：304 与 206 由框架按 ETag / Last-Modified 处理。
+ */
+class UserControllerAvatarTests {
+
+    private static final String AVATAR = "avatar.png";
+    private static final Instant MODIFIED = Instant.parse("2026-01-01T08:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private final UserService userService = mock(UserService.class);
+    private byte[] content;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.write(dir.resolve(AVATAR), content);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        when(userService.getAvatar(AVATAR)).thenReturn(Result.success("avatar loaded", new FileSystemResource(file)));
+        when(userService.getAvatar("missing.png")).thenReturn(Result.error("avatar not found"));
+
+        UserController controller = new UserController();
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void servesTheFileWithValidators() throws Exception {
+        MvcResult result = mvc.perform(get("/api/user/avatar/" + AVATAR))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+            .andExpect(header().string(HttpHeaders.ETAG, etag()))
+            .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, MODIFIED.toEpochMilli()))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=604800"))
+            .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void matchingETagIsNotModified() throws Exception {
+        MvcResult result = mvc.perform(get("/api/user/avatar/" + AVATAR).header(HttpHeaders.IF_NONE_MATCH, etag()))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag()))
+            .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void unmodifiedSinceIsNotModified() throws Exception {
+        mvc.perform(get("/api/user/avatar/" + AVATAR).header(HttpHeaders.IF_MODIFIED_SINCE, MODIFIED.toEpochMilli()))
+            .andExpect(status().isNotModified());
+
+        mvc.perform(get("/api/user/avatar/" + AVATAR)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, MODIFIED.minusSeconds(60).toEpochMilli()))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void rangeReturnsPartialContent() throws Exception {
+        MvcResult result = mvc.perform(get("/api/user/avatar/" + AVATAR).header(HttpHeaders.RANGE, "bytes=100-199"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/1000"))
+            .andExpect(header().string(HttpHeaders.ETAG, etag()))
+            .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 100, 200));
+    }
+
+    @Test
+    void missingAvatarIsNotFound() throws Exception {
+        mvc.perform(get("/api/user/avatar/missing.png")).andExpect(status().isNotFound());
+    }
+
+    private String etag() {
+        return "\"" + Long.toHexString(content.length) + "-" + Long.toHexString(MODIFIED.toEpochMilli()) + "\"";
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTests {
+
+    private static final String SECRET = "jwt-util-tests-secret-0123456789abcdef";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T08:00:00.250Z"));
+    /** 模拟随用户持久化的吊销点，多个 JwtUtil 实例共用即相当于多个节点 */
+    private final Map<String, Instant> validAfter = new ConcurrentHashMap<>();
+    private final TokenRevocations revocations = (userId, username) -> validAfter.get(username);
+
+    private JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, "play-system", 3600, 100, () -> revocations, clock);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Test
+    void secondParseOfTheSameTokenIsServedFromTheCache() {
+        JwtUtil jwtUtil = jwtUtil();
+        String token = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+
+        JwtUtil.TokenDetails first = jwtUtil.parseToken(token).orElseThrow();
+        JwtUtil.TokenDetails second = jwtUtil.parseToken(token).orElseThrow();
+
+        // 验签会新建 TokenDetails，同一实例说明第二次未再验签
+        assertThat(second).isSameAs(first);
+        assertThat(second.getUsername()).isEqualTo("alice");
+        assertThat(second.getUserId()).isEqualTo(1L);
+    }
+
+    @Test
+    void revokedUserIsRejectedForCachedAndUncachedTokens() {
+        JwtUtil jwtUtil = jwtUtil();
+        String cached = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+        String uncached = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of("n", 2)).getToken();
+        String other = jwtUtil.generateToken("bob", "GUEST", 2L, Map.of()).getToken();
+        assertThat(jwtUtil.parseToken(cached)).isPresent();
+
+        validAfter.put("alice", jwtUtil.revocationPoint());
+
+        assertThat(jwtUtil.parseToken(cached)).isEmpty();
+        assertThat(jwtUtil.parseToken(uncached)).isEmpty();
+        assertThat(jwtUtil.parseToken(other)).isPresent();
+    }
+
+    @Test
+    void revocationIsSeenByAnotherInstance() {
+        JwtUtil node1 = jwtUtil();
+        JwtUtil node2 = jwtUtil();
+        String token = node1.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+        assertThat(node2.parseToken(token)).isPresent();
+
+        validAfter.put("alice", node1.revocationPoint());
+
+        assertThat(node2.parseToken(token)).isEmpty();
+    }
+
+    @Test
+    void tokensIssuedFromTheRevocationPointAreAccepted() {
+        JwtUtil jwtUtil = jwtUtil();
+        validAfter.put("alice", jwtUtil.revocationPoint());
+
+        // iat 精确到秒，同一秒内签发的仍被拒绝，吊销点所在的下一秒起有效
+        String sameSecond = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+        clock.advance(Duration.ofSeconds(1));
+        String nextSecond = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+
+        assertThat(jwtUtil.parseToken(sameSecond)).isEmpty();
+        assertThat(jwtUtil.parseToken(nextSecond)).get()
+                .extracting(JwtUtil.TokenDetails::getUsername).isEqualTo("alice");
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        JwtUtil jwtUtil = jwtUtil();
+        String token = jwtUtil.generateToken("alice", "GUEST", 1L, Map.of()).getToken();
+
+        clock.advance(Duration.ofSeconds(3601));
+
+        assertThat(jwtUtil().parseToken(token)).isEmpty();
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -63,8 +63,22 @@ export interface SendMessagePayload {
   clientMessageId?: string
 }
 
-export function fetchChatSessions(extra: Record<string, any> = {}): Promise<Result<ChatSessionSummary[]>> {
-  return postDataRequest('/api/chat/sessions', extra)
+export interface ChatSessionPage {
+  sessions: ChatSessionSummary[]
+  nextCursor?: string | null
+}
+
+export const CHAT_SESSION_PAGE_SIZE = 50
+
+/**
+ * 按会话活跃时间倒序分页；cursor 传上一页返回的 nextCursor，首页不传。
+ */
+export function fetchChatSessions(
+  extra: Record<string, any> = {},
+  cursor?: string | null,
+  size = CHAT_SESSION_PAGE_SIZE,
+): Promise<Result<ChatSessionPage>> {
+  return postDataRequestWithPage('/api/chat/sessions', { ...extra, cursor: cursor ?? '' }, undefined, size)
 }
 
 export function fetchChatHistory(payload: ChatHistoryPayload): Promise<Result<ChatHistoryResponse>> {
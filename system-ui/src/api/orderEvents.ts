@@ -0,0 +1,40 @@
+import type { IMessage } from '@stomp/stompjs'
+import { acquireStomp } from './stomp'
+
+export interface OrderDelta {
+  orderId: number
+  orderNo?: string | null
+  status: string
+  previousStatus?: string | null
+  updatedAt?: string | null
+}
+
+export interface OrderEventSubscription {
+  /** 推送通道是否已连上；未连上时调用方应自行刷新 */
+  connected(): boolean
+  close(): void
+}
+
+/**
+ * 订阅商家的订单变更推送（/user/queue/orders）。服务端按批合并推送 ORDER_DELTA，
+ * 每批包含若干订单的最新状态；与聊天共用同一条 STOMP 连接，断开后自动重连并重新订阅。
+ */
+export function subscribeOrderEvents(onDelta: (orders: OrderDelta[]) => void): OrderEventSubscription {
+  const connection = acquireStomp()
+  connection.subscribe('/user/queue/orders', (message: IMessage) => {
+    if (!message.body) return
+    try {
+      const frame = JSON.parse(message.body)
+      if (frame?.type === 'ORDER_DELTA' && Array.isArray(frame.orders) && frame.orders.length > 0) {
+        onDelta(frame.orders as OrderDelta[])
+      }
+    } catch (err) {
+      console.warn('解析订单推送失败', err)
+    }
+  })
+
+  return {
+    connected: () => connection.connected(),
+    close: () => connection.release(),
+  }
+}
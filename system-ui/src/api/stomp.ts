@@ -0,0 +1,159 @@
+import { Client } from '@stomp/stompjs'
+import type { IFrame, IMessage, StompSubscription } from '@stomp/stompjs'
+import SockJS from 'sockjs-client'
+import { getStoredAuth } from './http'
+
+export type StompStatus = 'DISCONNECTED' | 'CONNECTING' | 'CONNECTED'
+
+export interface StompConnection {
+  /** 订阅目的地；连接建立或重连后自动（重新）订阅 */
+  subscribe(destination: string, onMessage: (message: IMessage) => void): void
+  /** 已连接时发布并返回 true；未连接时返回 false，由调用方改走 HTTP */
+  publish(destination: string, body: string): boolean
+  connected(): boolean
+  /** 取消本使用者的订阅；最后一个使用者归还后稍等再断开，页面切换时复用同一连接 */
+  release(): void
+}
+
+interface Subscription {
+  destination: string
+  onMessage: (message: IMessage) => void
+  handle?: StompSubscription
+}
+
+interface Holder {
+  subscriptions: Subscription[]
+  onStatus?: (status: StompStatus) => void
+}
+
+/** 最后一个使用者归还后保留连接的时间 */
+const LINGER_MS = 10000
+
+let client: Client | null = null
+let clientAuthKey = ''
+let status: StompStatus = 'DISCONNECTED'
+let lingerTimer: number | undefined
+const holders = new Set<Holder>()
+
+/**
+ * SockJS 端点：VITE_WS_CHAT_ENDPOINT 可为完整的 http(s) 地址，否则拼在 VITE_API_BASE_URL（默认当前站点）之后。
+ */
+export function resolveWsUrl() {
+  // Always use HTTP(S) URL for SockJS endpoint; proxy will handle it in dev
+  const raw = (import.meta.env.VITE_WS_CHAT_ENDPOINT as string | undefined) || '/ws/chat'
+  if (raw.startsWith('http')) return raw
+  const base = (import.meta.env.VITE_API_BASE_URL as string | undefined) || window.location.origin
+  const normalizedBase = base.endsWith('/') ? base.slice(0, -1) : base
+  const normalizedPath = raw.startsWith('/') ? raw : `/${raw}`
+  return normalizedBase + normalizedPath
+}
+
+/**
+ * 取得与服务端 /ws/chat 的共享 STOMP 连接（聊天与订单推送共用一条）。
+ * onStatus 会立即收到当前状态，之后在状态变化时回调。
+ */
+export function acquireStomp(onStatus?: (status: StompStatus) => void): StompConnection {
+  if (lingerTimer) {
+    clearTimeout(lingerTimer)
+    lingerTimer = undefined
+  }
+  const holder: Holder = { subscriptions: [], onStatus }
+  holders.add(holder)
+  ensureClient()
+  onStatus?.(status)
+
+  return {
+    subscribe(destination, onMessage) {
+      const subscription: Subscription = { destination, onMessage }
+      holder.subscriptions.push(subscription)
+      attach(subscription)
+    },
+    publish(destination, body) {
+      if (!client || status !== 'CONNECTED') return false
+      client.publish({ destination, body })
+      return true
+    },
+    connected: () => status === 'CONNECTED',
+    release() {
+      if (!holders.delete(holder)) return
+      holder.subscriptions.forEach(detach)
+      holder.subscriptions = []
+      if (holders.size === 0) {
+        lingerTimer = window.setTimeout(closeClient, LINGER_MS)
+      }
+    },
+  }
+}
+
+function ensureClient() {
+  const auth = getStoredAuth()
+  const authKey = `${auth?.username ?? ''}|${auth?.token ?? ''}`
+  if (client && clientAuthKey === authKey) return
+  // 登录用户或 Token 变了，按新凭证重连
+  closeClient()
+
+  const headers: Record<string, string> = {}
+  if (auth?.username) headers.username = auth.username
+  if (auth?.token) headers.Authorization = `${auth.tokenType || 'Bearer'} ${auth.token}`
+  const next = new Client({
+    reconnectDelay: 5000,
+    heartbeatIncoming: 10000,
+    heartbeatOutgoing: 10000,
+    connectHeaders: headers,
+  })
+  const endpoint = resolveWsUrl()
+  // Always use SockJS for compatibility with the server endpoint configured with withSockJS()
+  next.webSocketFactory = () => new SockJS(endpoint)
+  next.onConnect = () => {
+    if (client !== next) return
+    setStatus('CONNECTED')
+    // 断线后旧订阅随会话失效，重连时逐个重新订阅
+    holders.forEach((holder) => holder.subscriptions.forEach(attach))
+  }
+  next.onStompError = (frame: IFrame) => {
+    console.error('STOMP 错误', frame)
+    if (client === next) setStatus('DISCONNECTED')
+  }
+  next.onWebSocketClose = () => {
+    if (client === next) setStatus('DISCONNECTED')
+  }
+  client = next
+  clientAuthKey = authKey
+  setStatus('CONNECTING')
+  next.activate()
+}
+
+function closeClient() {
+  lingerTimer = undefined
+  if (!client) return
+  const current = client
+  client = null
+  clientAuthKey = ''
+  try {
+    current.deactivate()
+  } catch (err) {
+    console.warn('断开 WebSocket 失败', err)
+  }
+  setStatus('DISCONNECTED')
+}
+
+function attach(subscription: Subscription) {
+  if (!client || status !== 'CONNECTED') return
+  subscription.handle = client.subscribe(subscription.destination, subscription.onMessage)
+}
+
+function detach(subscription: Subscription) {
+  const handle = subscription.handle
+  subscription.handle = undefined
+  if (!handle || status !== 'CONNECTED') return
+  try {
+    handle.unsubscribe()
+  } catch (err) {
+    console.warn('取消订阅失败', err)
+  }
+}
+
+function setStatus(next: StompStatus) {
+  status = next
+  holders.forEach((holder) => holder.onStatus?.(next))
+}